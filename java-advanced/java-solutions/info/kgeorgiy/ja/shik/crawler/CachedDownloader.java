@@ -0,0 +1,65 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link Downloader}, that reuses links extracted from unchanged pages.
+ * Each downloaded page is hashed, and if {@link PageCache} has links of the page with the same hash,
+ * they are returned without extraction. Otherwise links are extracted by underlying document and cached.
+ * <p>
+ * Pages are still downloaded on every crawl, so hash should be much cheaper than extraction,
+ * e.g. hash of raw content or of validators like {@code ETag}, that are known after download.
+ */
+public class CachedDownloader implements Downloader {
+    private final Downloader downloader;
+    private final Hasher hasher;
+    private final PageCache cache;
+
+    /**
+     * Content hash of a downloaded page.
+     */
+    @FunctionalInterface
+    public interface Hasher {
+        /**
+         * Returns hash of content of downloaded page.
+         *
+         * @param url      page URL
+         * @param document downloaded page
+         * @return content hash
+         * @throws IOException if content couldn't be read
+         */
+        long hash(String url, Document document) throws IOException;
+    }
+
+    /**
+     * Constructs downloader.
+     *
+     * @param downloader underlying downloader
+     * @param hasher     content hash of downloaded pages
+     * @param cache      cache of extracted links, could be shared by several downloaders
+     */
+    public CachedDownloader(final Downloader downloader, final Hasher hasher, final PageCache cache) {
+        this.downloader = downloader;
+        this.hasher = hasher;
+        this.cache = cache;
+    }
+
+    @Override
+    public Document download(final String url) throws IOException {
+        final Document document = downloader.download(url);
+        final long hash = hasher.hash(url, document);
+        final List<String> cached = cache.get(url, hash);
+        if (cached != null) {
+            return () -> cached;
+        }
+        return () -> {
+            final List<String> links = document.extractLinks();
+            cache.put(url, hash, links);
+            return links;
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of a crawl started by {@link WebCrawler#start(String, int, CrawlListener)}.
+ * Each job has its own visited pages and results, while download threads, extraction threads
+ * and per-host limits are shared by all jobs of the crawler.
+ */
+public interface CrawlJob {
+    /**
+     * Stops the crawl. Pages, that are being downloaded or extracted, are processed to the end,
+     * but no further pages are downloaded or reported. The job completes as soon as they are done.
+     */
+    void cancel();
+
+    /**
+     * Returns whether the crawl was cancelled.
+     *
+     * @return {@code true} if {@link #cancel()} was called
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns whether the crawl has completed, either normally or after cancellation.
+     *
+     * @return {@code true} if {@link CrawlListener#completed()} has returned
+     */
+    boolean isDone();
+
+    /**
+     * Waits, until the crawl completes.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void await() throws InterruptedException;
+
+    /**
+     * Waits, until the crawl completes or {@code timeout} elapses.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of {@code timeout}
+     * @return {@code true} if the crawl has completed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,54 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+
+import java.io.IOException;
+
+/**
+ * Receives results of a crawl as soon as they are available.
+ * Methods are called concurrently from crawler threads, so implementations should be thread-safe.
+ * Crawling of other pages waits for the listener, so slow listeners slow the crawl down instead of
+ * accumulating unprocessed results.
+ * <p>
+ * Runtime exceptions of listener methods don't affect the crawl: the page is processed as if the method returned,
+ * and the exception is passed to uncaught exception handler of the calling thread.
+ */
+public interface CrawlListener {
+    /**
+     * Called once for each successfully downloaded page.
+     * Links of {@code document} are extracted only once per crawl, so calling {@link Document#extractLinks()}
+     * from the listener doesn't cause additional extraction.
+     *
+     * @param url      page URL
+     * @param document downloaded page
+     * @param depth    depth of page at the moment of download.
+     *                 The page could be found at smaller depth later, then its links are crawled at smaller depth.
+     */
+    default void downloaded(final String url, final Document document, final int depth) {
+    }
+
+    /**
+     * Called once for each page, that couldn't be downloaded.
+     *
+     * @param url   page URL
+     * @param error cause of failure
+     */
+    default void failed(final String url, final IOException error) {
+    }
+
+    /**
+     * Called once for each depth from {@code 1} to the depth of the deepest found page, in increasing order,
+     * as soon as all pages of this and smaller depths are reported and no more pages could be found at them.
+     * Not called for depths, that are not completed before cancellation.
+     *
+     * @param depth completed depth
+     */
+    default void depthCompleted(final int depth) {
+    }
+
+    /**
+     * Called once after all pages are processed.
+     */
+    default void completed() {
+    }
+}
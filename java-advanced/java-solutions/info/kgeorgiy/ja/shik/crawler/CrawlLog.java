@@ -0,0 +1,555 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Checkpoint of a crawl in a local file: a snapshot of crawl state followed by an append-only log of crawl events.
+ * <p>
+ * Crawl threads only put events to a bounded queue, and a single writer thread appends them to the file,
+ * flushes it to disk every second and replaces the file with a fresh snapshot, when appended events
+ * outgrow the previous snapshot, so file size and amortized write cost stay proportional to crawl state.
+ * Events, that weren't flushed before a crash, are lost, but the file always describes a consistent
+ * earlier state: a page is recorded as expanded only after visits of all its links.
+ * <p>
+ * Writer keeps URL, depth and state of pages, that were not completed yet, and of failed pages.
+ * Completed pages, that were downloaded and expanded, are kept and written to snapshots as
+ * {@link FingerprintSet#fingerprint(String) fingerprints} with depths, so neither memory nor snapshot size
+ * depends on their URLs. URLs of downloaded pages are needed only to report them on resume, so they are
+ * appended once to a separate file {@code <checkpoint>.urls}, that is flushed before the checkpoint itself.
+ * Pages, that were not completed, are downloaded again on resume.
+ */
+class CrawlLog {
+    private static final int MAGIC = 0x43524157;
+    private static final byte VISITED = 'V';
+    private static final byte DOWNLOADED = 'D';
+    private static final byte FAILED = 'E';
+    private static final byte EXPANDED = 'X';
+    private static final byte COMPLETED = 'C';
+    private static final int QUEUE_CAPACITY = 1 << 14;
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final int MIN_COMPACTION_SIZE = 1 << 20;
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+    private static final int MAX_MESSAGE_LENGTH = 1 << 10;
+    private static final Record STOP = new Record((byte) 0, null, 0, null);
+
+    private final Path file;
+    private final Path urlFile;
+    private final String url;
+    private final int depth;
+    private final List<String> permittedHosts;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final FingerprintSet completed = new FingerprintSet();
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer = new Thread(this::write);
+    private FileOutputStream stream;
+    private DataOutputStream out;
+    private FileOutputStream urlStream;
+    private DataOutputStream urls;
+    private int snapshotSize;
+
+    private CrawlLog(final Path file, final String url, final int depth, final List<String> permittedHosts) {
+        this.file = file;
+        urlFile = file.resolveSibling(file.getFileName() + ".urls");
+        this.url = url;
+        this.depth = depth;
+        this.permittedHosts = permittedHosts;
+    }
+
+    /**
+     * Creates checkpoint of a new crawl, replacing existing files.
+     *
+     * @param file           checkpoint file
+     * @param url            start URL of crawl
+     * @param depth          download depth
+     * @param permittedHosts domains to follow
+     * @return checkpoint, that is ready to {@link #start()}
+     * @throws IOException if checkpoint cannot be written
+     */
+    static CrawlLog create(final Path file, final String url, final int depth, final List<String> permittedHosts)
+            throws IOException {
+        final CrawlLog log = new CrawlLog(file, url, depth, List.copyOf(permittedHosts));
+        log.openUrls(false);
+        log.compact();
+        return log;
+    }
+
+    /**
+     * Reads checkpoint written by previous crawl. Event torn by crash at the end of the log is ignored.
+     *
+     * @param file checkpoint file
+     * @return checkpoint, that is ready to {@link #restore restore} and {@link #start()}
+     * @throws IOException if checkpoint cannot be read or is malformed
+     */
+    static CrawlLog open(final Path file) throws IOException {
+        final CrawlLog log;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a crawl checkpoint: " + file);
+            }
+            final String url = readString(in);
+            final int depth = in.readInt();
+            final int hosts = in.readInt();
+            if (hosts < 0) {
+                throw new IOException("Invalid number of permitted hosts " + hosts);
+            }
+            final List<String> permittedHosts = new ArrayList<>();
+            for (int i = 0; i < hosts; i++) {
+                permittedHosts.add(readString(in));
+            }
+            log = new CrawlLog(file, url, depth, List.copyOf(permittedHosts));
+            try {
+                for (int type = in.read(); type >= 0; type = in.read()) {
+                    log.apply(readRecord((byte) type, in));
+                }
+            } catch (final EOFException ignored) {
+                //  last event wasn't written completely
+            }
+        } catch (final EOFException e) {
+            throw new IOException("Truncated crawl checkpoint: " + file, e);
+        }
+        log.truncateUrls();
+        log.openUrls(true);
+        log.compact();
+        return log;
+    }
+
+    String url() {
+        return url;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    List<String> permittedHosts() {
+        return permittedHosts;
+    }
+
+    /**
+     * Restores state of crawl. Should be called before {@link #start()}.
+     *
+     * @param visited    receives all scheduled pages with their depths
+     * @param processed  receives completed pages with depths, at which they were processed,
+     *                   and failed pages with depth {@code 0}
+     * @param downloaded receives pages, that were downloaded and completed
+     * @param failed     receives pages, that couldn't be downloaded
+     * @return pages, that should be downloaded again
+     * @throws IOException if URL file cannot be read
+     */
+    List<String> restore(final FingerprintSet visited, final FingerprintSet processed,
+                         final Consumer<String> downloaded, final BiConsumer<String, IOException> failed)
+            throws IOException {
+        final List<String> frontier = new ArrayList<>();
+        final Set<Long> reopened = new HashSet<>();
+        entries.forEach((page, entry) -> {
+            visited.visit(page, entry.depth);
+            if (entry.state == FAILED) {
+                processed.visit(page, 0);
+                failed.accept(page, new IOException(entry.message));
+            } else {
+                reopened.add(FingerprintSet.fingerprint(page));
+                frontier.add(page);
+            }
+        });
+        completed.forEach((fingerprint, pageDepth) -> {
+            visited.visit(fingerprint, pageDepth);
+            if (!reopened.contains(fingerprint)) {
+                processed.visit(fingerprint, pageDepth);
+            }
+        });
+        if (Files.exists(urlFile)) {
+            final FingerprintSet reported = new FingerprintSet();
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(urlFile)))) {
+                for (String page = readUrl(in); page != null; page = readUrl(in)) {
+                    final long fingerprint = FingerprintSet.fingerprint(page);
+                    if (completed.depth(fingerprint) != VisitedSet.UNVISITED && !reopened.contains(fingerprint)
+                            && reported.visit(fingerprint, 0) == VisitedSet.UNVISITED) {
+                        downloaded.accept(page);
+                    }
+                }
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * Returns next URL of URL file or {@code null} at the end of file.
+     */
+    private static String readUrl(final DataInputStream in) throws IOException {
+        try {
+            return readString(in);
+        } catch (final EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Cuts off URL torn by crash at the end of URL file, so URLs appended after it could be read.
+     */
+    private void truncateUrls() throws IOException {
+        if (Files.notExists(urlFile)) {
+            return;
+        }
+        long valid = 0;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(urlFile)))) {
+            while (true) {
+                final int length = in.readInt();
+                if (length < 0 || length > MAX_STRING_LENGTH) {
+                    throw new IOException("Invalid string length " + length);
+                }
+                if (in.skipBytes(length) < length) {
+                    break;
+                }
+                valid += Integer.BYTES + length;
+            }
+        } catch (final EOFException ignored) {
+            //  last URL wasn't written completely
+        }
+        try (final FileChannel channel = FileChannel.open(urlFile, StandardOpenOption.WRITE)) {
+            channel.truncate(valid);
+        }
+    }
+
+    private void openUrls(final boolean append) throws IOException {
+        urlStream = new FileOutputStream(urlFile.toFile(), append);
+        urls = new DataOutputStream(new BufferedOutputStream(urlStream));
+    }
+
+    /**
+     * Starts writer thread.
+     */
+    void start() {
+        writer.start();
+    }
+
+    /**
+     * Records, that {@code page} was scheduled or found at smaller depth.
+     */
+    void visited(final String page, final int pageDepth) {
+        add(new Record(VISITED, page, pageDepth, null));
+    }
+
+    /**
+     * Records, that {@code page} was downloaded.
+     */
+    void downloaded(final String page) {
+        add(new Record(DOWNLOADED, page, 0, null));
+    }
+
+    /**
+     * Records, that {@code page} couldn't be downloaded.
+     */
+    void failed(final String page, final int pageDepth, final IOException error) {
+        final String message = error.getMessage() == null ? error.getClass().getName() : error.getMessage();
+        add(new Record(FAILED, page, pageDepth, message.substring(0, Math.min(message.length(), MAX_MESSAGE_LENGTH))));
+    }
+
+    /**
+     * Records, that all links of {@code page} were visited at depth {@code pageDepth + 1}.
+     */
+    void expanded(final String page, final int pageDepth) {
+        add(new Record(EXPANDED, page, pageDepth, null));
+    }
+
+    /**
+     * Writes remaining events, replaces log with final snapshot and stops writer thread.
+     */
+    void close() {
+        add(STOP);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Puts event to queue. Waits uninterruptibly, so no event is lost, while writer thread is behind.
+     */
+    private void add(final Record record) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(record);
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        try {
+            try {
+                long flushAt = System.nanoTime() + FLUSH_INTERVAL;
+                for (Record record = next(flushAt); record != STOP; record = next(flushAt)) {
+                    if (record != null) {
+                        if (record.type == DOWNLOADED) {
+                            //  URL should reach file before any event, that completes page
+                            writeString(urls, record.url);
+                            urls.flush();
+                        }
+                        apply(record);
+                        writeRecord(out, record);
+                        if (out.size() > Math.max(MIN_COMPACTION_SIZE, snapshotSize)) {
+                            compact();
+                        }
+                    }
+                    if (System.nanoTime() - flushAt >= 0) {
+                        syncUrls();
+                        out.flush();
+                        stream.getFD().sync();
+                        flushAt = System.nanoTime() + FLUSH_INTERVAL;
+                    }
+                }
+                compact();
+                out.close();
+                urls.close();
+            } catch (final IOException e) {
+                System.err.println("Crawl checkpoint is not written: " + e.getMessage());
+                try {
+                    out.close();
+                    urls.close();
+                } catch (final IOException ignored) {
+                }
+                //  crawl threads shouldn't wait for writer anymore
+                while (queue.take() != STOP) {
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Record next(final long flushAt) throws InterruptedException {
+        return queue.poll(flushAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void apply(final Record record) {
+        if (record.type == COMPLETED) {
+            completed.visit(record.fingerprint, record.depth);
+            return;
+        }
+        final Entry entry = entries.get(record.url);
+        switch (record.type) {
+            case VISITED:
+                if (entry != null) {
+                    entry.depth = Math.min(entry.depth, record.depth);
+                } else {
+                    final int completedDepth = completed.depth(FingerprintSet.fingerprint(record.url));
+                    if (completedDepth != VisitedSet.UNVISITED) {
+                        if (record.depth < completedDepth) {
+                            //  completed page was found at smaller depth, so it should be expanded again
+                            final Entry reopened = new Entry(record.depth);
+                            reopened.state = DOWNLOADED;
+                            entries.put(record.url, reopened);
+                        }
+                    } else if (isPermitted(record.url)) {
+                        entries.put(record.url, new Entry(record.depth));
+                    }
+                }
+                break;
+            case DOWNLOADED:
+                if (entry != null) {
+                    entry.state = DOWNLOADED;
+                    complete(record.url, entry);
+                }
+                break;
+            case EXPANDED:
+                if (entry != null) {
+                    entry.expanded = Math.min(entry.expanded, record.depth);
+                    complete(record.url, entry);
+                }
+                break;
+            case FAILED:
+                final Entry failed = entries.computeIfAbsent(record.url, page -> new Entry(record.depth));
+                failed.depth = Math.min(failed.depth, record.depth);
+                failed.state = FAILED;
+                failed.message = record.message;
+                break;
+            default:
+                throw new AssertionError("Unknown event " + record.type);
+        }
+    }
+
+    /**
+     * Returns whether {@code page} was scheduled, as pages of other hosts are only visited.
+     * Log doesn't depend on order of visits of a page and its scheduling.
+     */
+    private boolean isPermitted(final String page) {
+        try {
+            return permittedHosts.contains(URLUtils.getHost(page));
+        } catch (final MalformedURLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Moves {@code page} to completed pages, if it was downloaded and expanded at its depth.
+     */
+    private void complete(final String page, final Entry entry) {
+        if (entry.state == DOWNLOADED && (entry.depth >= depth || entry.expanded <= entry.depth)) {
+            entries.remove(page);
+            completed.visit(FingerprintSet.fingerprint(page), entry.depth);
+        }
+    }
+
+    private void syncUrls() throws IOException {
+        urls.flush();
+        urlStream.getFD().sync();
+    }
+
+    /**
+     * Atomically replaces checkpoint file with snapshot of current state and reopens it for appending.
+     */
+    private void compact() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        syncUrls();
+        final Path parent = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            final FileOutputStream snapshotStream = new FileOutputStream(temp.toFile());
+            try (final DataOutputStream snapshot = new DataOutputStream(new BufferedOutputStream(snapshotStream))) {
+                snapshot.writeInt(MAGIC);
+                writeString(snapshot, url);
+                snapshot.writeInt(depth);
+                snapshot.writeInt(permittedHosts.size());
+                for (final String host : permittedHosts) {
+                    writeString(snapshot, host);
+                }
+                completed.forEach((fingerprint, pageDepth) -> writeRecord(snapshot, new Record(fingerprint, pageDepth)));
+                for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+                    final String page = e.getKey();
+                    final Entry entry = e.getValue();
+                    writeRecord(snapshot, new Record(VISITED, page, entry.depth, null));
+                    if (entry.state == DOWNLOADED) {
+                        writeRecord(snapshot, new Record(DOWNLOADED, page, 0, null));
+                    } else if (entry.state == FAILED) {
+                        writeRecord(snapshot, new Record(FAILED, page, entry.depth, entry.message));
+                    }
+                    if (entry.expanded != VisitedSet.UNVISITED) {
+                        writeRecord(snapshot, new Record(EXPANDED, page, entry.expanded, null));
+                    }
+                }
+                snapshot.flush();
+                snapshotStream.getFD().sync();
+                snapshotSize = snapshot.size();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        stream = new FileOutputStream(file.toFile(), true);
+        out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    }
+
+    private static void writeRecord(final DataOutputStream out, final Record record) throws IOException {
+        out.writeByte(record.type);
+        if (record.type == COMPLETED) {
+            out.writeLong(record.fingerprint);
+            out.writeInt(record.depth);
+            return;
+        }
+        writeString(out, record.url);
+        if (record.type != DOWNLOADED) {
+            out.writeInt(record.depth);
+        }
+        if (record.type == FAILED) {
+            writeString(out, record.message);
+        }
+    }
+
+    private static Record readRecord(final byte type, final DataInputStream in) throws IOException {
+        if (type == COMPLETED) {
+            final long fingerprint = in.readLong();
+            return new Record(fingerprint, in.readInt());
+        }
+        if (type != VISITED && type != DOWNLOADED && type != FAILED && type != EXPANDED) {
+            throw new IOException("Invalid crawl event " + type);
+        }
+        final String page = readString(in);
+        final int pageDepth = type == DOWNLOADED ? 0 : in.readInt();
+        final String message = type == FAILED ? readString(in) : null;
+        return new Record(type, page, pageDepth, message);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Record {
+        private final byte type;
+        private final String url;
+        private final long fingerprint;
+        private final int depth;
+        private final String message;
+
+        private Record(final byte type, final String url, final int depth, final String message) {
+            this.type = type;
+            this.url = url;
+            fingerprint = 0;
+            this.depth = depth;
+            this.message = message;
+        }
+
+        /**
+         * Constructs snapshot record of completed page.
+         */
+        private Record(final long fingerprint, final int depth) {
+            type = COMPLETED;
+            url = null;
+            this.fingerprint = fingerprint;
+            this.depth = depth;
+            message = null;
+        }
+    }
+
+    private static class Entry {
+        private int depth;
+        private byte state = VISITED;
+        private int expanded = VisitedSet.UNVISITED;
+        private String message;
+
+        private Entry(final int depth) {
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import java.io.IOException;
+
+/**
+ * {@link VisitedSet}, that stores 64-bit fingerprints of URLs instead of URLs themselves.
+ * Fingerprints and depths are kept in open-addressing tables with linear probing, so each URL
+ * costs 18 to 36 bytes regardless of its length. Tables are split into independently locked segments
+ * by high bits of fingerprint, so concurrent insertions rarely contend.
+ * <p>
+ * Distinct URLs with equal fingerprints are treated as the same URL. For {@code n} URLs this happens
+ * with probability about {@code n^2 / 2^65}, that is less than {@code 10^-3} for {@code 10^8} URLs.
+ */
+class FingerprintSet implements VisitedSet {
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 1 << 6;
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    /**
+     * Constructs empty set.
+     */
+    FingerprintSet() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private Segment segment(final long fingerprint) {
+        return segments[(int) (fingerprint >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    @Override
+    public int visit(final String url, final int depth) {
+        final long fingerprint = fingerprint(url);
+        return segment(fingerprint).visit(fingerprint, depth);
+    }
+
+    @Override
+    public int depth(final String url) {
+        final long fingerprint = fingerprint(url);
+        return segment(fingerprint).depth(fingerprint);
+    }
+
+    /**
+     * Marks URL with given {@link #fingerprint(String) fingerprint} visited at {@code depth}.
+     *
+     * @param fingerprint fingerprint of visited URL
+     * @param depth       depth of URL
+     * @return previous minimal depth of URL or {@link #UNVISITED}, if it wasn't visited before this call
+     */
+    int visit(final long fingerprint, final int depth) {
+        return segment(fingerprint).visit(fingerprint, depth);
+    }
+
+    /**
+     * Returns minimal depth of URL with given {@link #fingerprint(String) fingerprint}.
+     *
+     * @param fingerprint fingerprint of URL
+     * @return minimal depth of URL or {@link #UNVISITED}, if it wasn't visited
+     */
+    int depth(final long fingerprint) {
+        return segment(fingerprint).depth(fingerprint);
+    }
+
+    /**
+     * Passes fingerprints and depths of all visited URLs to {@code visitor}. Each segment is locked,
+     * while its entries are passed.
+     *
+     * @param visitor receiver of entries
+     * @throws IOException if thrown by {@code visitor}
+     */
+    void forEach(final Visitor visitor) throws IOException {
+        for (final Segment segment : segments) {
+            segment.forEach(visitor);
+        }
+    }
+
+    /**
+     * Receiver of entries of {@link FingerprintSet}.
+     */
+    @FunctionalInterface
+    interface Visitor {
+        void accept(long fingerprint, int depth) throws IOException;
+    }
+
+    /**
+     * Returns non-zero 64-bit fingerprint of {@code url}: FNV-1a over UTF-16 chars followed by murmur3 finalizer.
+     *
+     * @param url fingerprinted URL
+     * @return fingerprint
+     */
+    static long fingerprint(final String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static class Segment {
+        private long[] fingerprints = new long[INITIAL_CAPACITY];
+        private int[] depths = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private synchronized int visit(final long fingerprint, final int depth) {
+            final int slot = find(fingerprints, fingerprint);
+            if (fingerprints[slot] == fingerprint) {
+                final int previous = depths[slot];
+                depths[slot] = Math.min(previous, depth);
+                return previous;
+            }
+            fingerprints[slot] = fingerprint;
+            depths[slot] = depth;
+            if (++size * 3L > fingerprints.length * 2L) {
+                resize();
+            }
+            return UNVISITED;
+        }
+
+        private synchronized int depth(final long fingerprint) {
+            final int slot = find(fingerprints, fingerprint);
+            return fingerprints[slot] == fingerprint ? depths[slot] : UNVISITED;
+        }
+
+        private synchronized void forEach(final Visitor visitor) throws IOException {
+            for (int i = 0; i < fingerprints.length; i++) {
+                if (fingerprints[i] != EMPTY) {
+                    visitor.accept(fingerprints[i], depths[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            final long[] oldFingerprints = fingerprints;
+            final int[] oldDepths = depths;
+            fingerprints = new long[oldFingerprints.length * 2];
+            depths = new int[oldFingerprints.length * 2];
+            for (int i = 0; i < oldFingerprints.length; i++) {
+                if (oldFingerprints[i] != EMPTY) {
+                    final int slot = find(fingerprints, oldFingerprints[i]);
+                    fingerprints[slot] = oldFingerprints[i];
+                    depths[slot] = oldDepths[i];
+                }
+            }
+        }
+
+        /**
+         * Returns slot of {@code fingerprint} or empty slot, where it should be inserted.
+         */
+        private static int find(final long[] fingerprints, final long fingerprint) {
+            final int mask = fingerprints.length - 1;
+            int i = (int) fingerprint & mask;
+            while (fingerprints[i] != fingerprint && fingerprints[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+}
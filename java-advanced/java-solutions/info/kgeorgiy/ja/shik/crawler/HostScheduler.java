@@ -0,0 +1,371 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs download tasks with at most fixed number of tasks running at once and with per-host politeness.
+ * <ul>
+ *     <li>at most {@code perHost} tasks of the same host run at the same time;</li>
+ *     <li>tasks of each host are started at most at {@code rate} per second with bursts up to {@code burst},
+ *     enforced by a token bucket;</li>
+ *     <li>hosts, that have tasks ready to start, are served one task per turn, host with the highest priority
+ *     task first and round-robin among equal priorities, so hosts with many queued tasks don't delay hosts with few;</li>
+ *     <li>tasks of each host are started in order of decreasing priority, tasks with equal priorities
+ *     are started in order of submission;</li>
+ *     <li>each host has a bounded queue, {@link #submit(String, double, Runnable)} blocks, while it is full.</li>
+ * </ul>
+ * State of a host is dropped, when it has no queued, running or waiting tasks and its token bucket is full,
+ * so it is the same as of a new host. Hosts with full buckets are dropped, as soon as their last task completes,
+ * other idle hosts are swept, when number of hosts doubles.
+ * Tasks run either on own threads of scheduler, or on a thread-per-task executor,
+ * where the number of running tasks is limited by a semaphore.
+ * Runtime exceptions of tasks are passed to uncaught exception handler of the running thread.
+ */
+class HostScheduler implements AutoCloseable {
+    private static final int MIN_SWEEP_SIZE = 16;
+
+    private final int perHost;
+    private final double rate;
+    private final double burst;
+    private final int queueCapacity;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final PriorityQueue<Turn> round = new PriorityQueue<>(
+            Comparator.comparingDouble((Turn turn) -> turn.priority).reversed().thenComparingLong(turn -> turn.sequence));
+    private final PriorityQueue<Host> throttled = new PriorityQueue<>(Comparator.comparingLong(host -> host.readyAt));
+    private final List<Thread> workers = new ArrayList<>();
+    private final ExecutorService executor;
+    private boolean closed;
+    private long sequence;
+    private int queued;
+    private int sweepSize = MIN_SWEEP_SIZE;
+
+    /**
+     * Constructs scheduler and starts its threads.
+     *
+     * @param threads       number of threads running tasks
+     * @param perHost       maximum number of simultaneously running tasks of a host
+     * @param rate          maximum number of tasks of a host started per second, {@link Double#POSITIVE_INFINITY}
+     *                      for no limit
+     * @param burst         maximum number of tasks of a host started at once after idle period
+     * @param queueCapacity maximum number of waiting tasks of a host
+     * @param executor      executor, that starts a new thread for each task, with at most {@code threads}
+     *                      tasks running at once, or {@code null} to run tasks on {@code threads} own threads
+     */
+    HostScheduler(final int threads, final int perHost, final double rate, final int burst, final int queueCapacity,
+                  final ExecutorService executor) {
+        if (threads < 1 || perHost < 1 || !(rate > 0) || burst < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Scheduler parameters should be positive");
+        }
+        this.perHost = perHost;
+        this.rate = rate;
+        this.burst = burst;
+        this.queueCapacity = queueCapacity;
+        this.executor = executor;
+        if (executor == null) {
+            for (int i = 0; i < threads; i++) {
+                workers.add(new Thread(this::work));
+            }
+        } else {
+            final Semaphore running = new Semaphore(threads);
+            workers.add(new Thread(() -> dispatch(running)));
+        }
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Queues {@code task} of given host. Blocks, while queue of the host is full.
+     *
+     * @param hostName host of task
+     * @param priority priority of task, tasks with higher priorities are started first
+     * @param task     queued task
+     * @throws InterruptedException       if interrupted while waiting for free space in queue
+     * @throws RejectedExecutionException if scheduler is closed
+     */
+    void submit(final String hostName, final double priority, final Runnable task) throws InterruptedException {
+        lock.lock();
+        try {
+            final Host host = host(hostName);
+            host.waiting++;
+            try {
+                while (!closed && host.tasks.size() >= queueCapacity) {
+                    host.notFull.await();
+                }
+            } finally {
+                host.waiting--;
+            }
+            if (closed) {
+                throw new RejectedExecutionException("Scheduler is closed");
+            }
+            host.tasks.add(new Task(task, priority, sequence++));
+            queued++;
+            if (host.turn != null && priority > host.turn.priority) {
+                enqueue(host);
+            } else {
+                schedule(host);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Host host(final String name) {
+        Host host = hosts.get(name);
+        if (host == null) {
+            if (hosts.size() >= sweepSize) {
+                final long now = System.nanoTime();
+                hosts.values().removeIf(idle -> idle.isIdle(now));
+                sweepSize = Math.max(MIN_SWEEP_SIZE, 2 * hosts.size());
+            }
+            host = new Host(name);
+            hosts.put(name, host);
+        }
+        return host;
+    }
+
+    /**
+     * Puts {@code host} to round, if it has a task, that could be started.
+     */
+    private void schedule(final Host host) {
+        if (!host.scheduled && !host.tasks.isEmpty() && host.running < perHost) {
+            host.scheduled = true;
+            enqueue(host);
+            ready.signal();
+        }
+    }
+
+    /**
+     * Puts {@code host} to round by priority of its best task, after hosts with the same priority.
+     * Previous turn of host, if any, becomes stale.
+     */
+    private void enqueue(final Host host) {
+        host.turn = new Turn(host, host.tasks.peek().priority, sequence++);
+        round.add(host.turn);
+    }
+
+    private Host poll() {
+        for (Turn turn = round.poll(); turn != null; turn = round.poll()) {
+            if (turn.host.turn == turn) {
+                turn.host.turn = null;
+                return turn.host;
+            }
+        }
+        return null;
+    }
+
+    private Map.Entry<Host, Runnable> next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                final long now = System.nanoTime();
+                while (!throttled.isEmpty() && throttled.peek().readyAt <= now) {
+                    enqueue(throttled.poll());
+                }
+                final Host host = poll();
+                if (host != null) {
+                    final long wait = host.acquire(now);
+                    if (wait > 0) {
+                        host.readyAt = now + wait;
+                        throttled.add(host);
+                        continue;
+                    }
+                    host.scheduled = false;
+                    host.running++;
+                    final Runnable task = host.tasks.poll().task;
+                    if (--queued == 0 && closed) {
+                        ready.signalAll();
+                    }
+                    host.notFull.signal();
+                    schedule(host);
+                    return Map.entry(host, task);
+                }
+                // Hosts, that wait for completion of their running tasks, are not in round
+                if (closed && queued == 0) {
+                    return null;
+                }
+                if (throttled.isEmpty()) {
+                    ready.await();
+                } else {
+                    ready.awaitNanos(throttled.peek().readyAt - now);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(final Map.Entry<Host, Runnable> next) {
+        try {
+            next.getValue().run();
+        } catch (final RuntimeException e) {
+            // Thread keeps running further tasks
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        } finally {
+            lock.lock();
+            try {
+                final Host host = next.getKey();
+                host.running--;
+                if (host.isIdle(System.nanoTime())) {
+                    hosts.remove(host.name, host);
+                } else {
+                    schedule(host);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            for (Map.Entry<Host, Runnable> next = next(); next != null; next = next()) {
+                run(next);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts tasks on {@link #executor}, when there are less than maximum number of running tasks.
+     */
+    private void dispatch(final Semaphore running) {
+        try {
+            while (true) {
+                running.acquire();
+                final Map.Entry<Host, Runnable> next = next();
+                if (next == null) {
+                    return;
+                }
+                executor.execute(() -> {
+                    try {
+                        run(next);
+                    } finally {
+                        running.release();
+                    }
+                });
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits, until all queued tasks are started and complete.
+     * Threads, that do not complete in a minute, are interrupted.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signalAll();
+            hosts.values().forEach(host -> host.notFull.signalAll());
+        } finally {
+            lock.unlock();
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        try {
+            for (final Thread worker : workers) {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.stream().filter(Thread::isAlive).forEach(Thread::interrupt);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Task {
+        private final Runnable task;
+        private final double priority;
+        private final long sequence;
+
+        private Task(final Runnable task, final double priority, final long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Turn {
+        private final Host host;
+        private final double priority;
+        private final long sequence;
+
+        private Turn(final Host host, final double priority, final long sequence) {
+            this.host = host;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private class Host {
+        private final String name;
+        private final Queue<Task> tasks = new PriorityQueue<>(
+                Comparator.comparingDouble((Task task) -> task.priority).reversed().thenComparingLong(task -> task.sequence));
+        private final Condition notFull = lock.newCondition();
+        private int running;
+        /**
+         * Number of submitters waiting for free space in queue.
+         */
+        private int waiting;
+        private boolean scheduled;
+        private Turn turn;
+        private long readyAt;
+        private double tokens = burst;
+        private long refilled = System.nanoTime();
+
+        private Host(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns whether host has no tasks and its token bucket is full, so it could be dropped.
+         * Idle host is neither in round, nor throttled.
+         */
+        private boolean isIdle(final long now) {
+            return tasks.isEmpty() && running == 0 && waiting == 0
+                    && (rate == Double.POSITIVE_INFINITY
+                    || tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1) >= burst);
+        }
+
+        /**
+         * Takes a token from bucket.
+         *
+         * @return {@code 0} if token was taken, or nanoseconds until next token otherwise
+         */
+        private long acquire(final long now) {
+            if (rate == Double.POSITIVE_INFINITY) {
+                return 0;
+            }
+            tokens = Math.min(burst, tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilled = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
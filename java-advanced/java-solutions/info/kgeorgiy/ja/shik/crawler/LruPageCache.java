@@ -0,0 +1,79 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PageCache}, that evicts least recently used pages, when total number of cached links exceeds a bound.
+ * Each page is counted as its number of links plus one, so both large pages and many small pages are bounded.
+ */
+public class LruPageCache implements PageCache {
+    private final long capacity;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * Constructs empty cache.
+     *
+     * @param capacity maximum total number of cached links and pages
+     */
+    public LruPageCache(final long capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized List<String> get(final String url, final long hash) {
+        final Entry entry = entries.get(url);
+        return entry != null && entry.hash == hash ? entry.links : null;
+    }
+
+    @Override
+    public synchronized void put(final String url, final long hash, final List<String> links) {
+        final Entry entry = new Entry(hash, List.copyOf(links));
+        if (entry.size() > capacity) {
+            remove(url);
+            return;
+        }
+        final Entry previous = entries.put(url, entry);
+        size += entry.size() - (previous == null ? 0 : previous.size());
+        for (final Iterator<Entry> it = entries.values().iterator(); size > capacity; ) {
+            size -= it.next().size();
+            it.remove();
+        }
+    }
+
+    private void remove(final String url) {
+        final Entry previous = entries.remove(url);
+        if (previous != null) {
+            size -= previous.size();
+        }
+    }
+
+    /**
+     * Returns number of cached pages.
+     *
+     * @return number of pages
+     */
+    public synchronized int pages() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final long hash;
+        private final List<String> links;
+
+        private Entry(final long hash, final List<String> links) {
+            this.hash = hash;
+            this.links = links;
+        }
+
+        private long size() {
+            return links.size() + 1L;
+        }
+    }
+}
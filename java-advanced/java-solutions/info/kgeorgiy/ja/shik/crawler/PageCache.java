@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+import java.util.List;
+
+/**
+ * Thread-safe cache of links extracted from pages, keyed by URL and validated by content hash of page.
+ *
+ * @see CachedDownloader
+ */
+public interface PageCache {
+    /**
+     * Returns cached links of {@code url}, if they were extracted from content with the same hash.
+     *
+     * @param url  page URL
+     * @param hash content hash of current version of page
+     * @return cached links or {@code null}, if page isn't cached or was changed
+     */
+    List<String> get(String url, long hash);
+
+    /**
+     * Caches links extracted from {@code url}, replacing previously cached version.
+     *
+     * @param url   page URL
+     * @param hash  content hash of page
+     * @param links links extracted from page
+     */
+    void put(String url, long hash, List<String> links);
+}
@@ -0,0 +1,25 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+/**
+ * Priority of a page in crawl frontier, pages with higher priorities are downloaded first,
+ * subject to per-host limits. Priority is computed once, when page is queued for download.
+ * Implementations could keep own state, e.g. number of links to page seen by {@link CrawlListener}.
+ *
+ * @see WebCrawler#start(String, int, CrawlListener, PagePriority)
+ */
+@FunctionalInterface
+public interface PagePriority {
+    /**
+     * Breadth-first order: pages at smaller depth are downloaded first.
+     */
+    PagePriority BREADTH_FIRST = (url, depth) -> -depth;
+
+    /**
+     * Returns priority of page. Called concurrently from crawler threads.
+     *
+     * @param url   page URL
+     * @param depth depth, at which page was found
+     * @return priority of page
+     */
+    double priority(String url, int depth);
+}
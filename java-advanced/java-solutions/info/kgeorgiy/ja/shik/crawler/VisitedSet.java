@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.shik.crawler;
+
+/**
+ * Thread-safe set of URLs, that were already scheduled during a crawl, with minimal depth of each URL.
+ */
+interface VisitedSet {
+    /**
+     * Depth of URLs, that weren't visited.
+     */
+    int UNVISITED = Integer.MAX_VALUE;
+
+    /**
+     * Atomically marks {@code url} visited at {@code depth}, unless it was visited at smaller depth.
+     *
+     * @param url   visited URL
+     * @param depth depth of {@code url}
+     * @return previous minimal depth of {@code url} or {@link #UNVISITED}, if it wasn't visited before this call
+     */
+    int visit(String url, int depth);
+
+    /**
+     * Returns minimal depth, at which {@code url} was visited.
+     *
+     * @param url visited URL
+     * @return minimal depth of {@code url} or {@link #UNVISITED}, if it wasn't visited
+     */
+    int depth(String url);
+}
@@ -3,16 +3,25 @@ package info.kgeorgiy.ja.shik.crawler;
 import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class WebCrawler implements AdvancedCrawler {
+    /**
+     * Default maximum number of queued downloads of a single host.
+     */
+    public static final int DEFAULT_HOST_QUEUE_CAPACITY = 1 << 12;
+    private static final int MAX_TRACKED_DEPTH = 1 << 10;
+
     private final Downloader downloader;
-    private final ExecutorService downloadService;
+    private final HostScheduler scheduler;
     private final ExecutorService extractorService;
-    private final int perHost;
-    private Map<String, Host> hosts;
+    private final Semaphore extractorPermits;
 
     /**
      * Constructs web-crawler.
@@ -23,10 +32,66 @@ public class WebCrawler implements AdvancedCrawler {
      * @param perHost     maximum number of pages for a fixed host, that could be downloaded at the same time.
      */
     public WebCrawler(final Downloader downloader, final int downloaders, final int extractors, final int perHost) {
+        this(downloader, downloaders, extractors, perHost, Double.POSITIVE_INFINITY, perHost, DEFAULT_HOST_QUEUE_CAPACITY, false);
+    }
+
+    /**
+     * Constructs web-crawler with per-host rate limits.
+     * Hosts, that have pages to download, are served round-robin.
+     *
+     * @param downloader    {@link Downloader} instance for downloading pages using {@link Downloader#download(String)}.
+     * @param downloaders   maximum number of pages, that could be downloaded at the same time.
+     * @param extractors    maximum number of pages, from that links could be extracted at the same time.
+     * @param perHost       maximum number of pages for a fixed host, that could be downloaded at the same time.
+     * @param hostRate      maximum number of pages for a fixed host, that could be requested per second.
+     * @param hostBurst     maximum number of pages for a fixed host, that could be requested at once after idle period.
+     * @param hostQueue     maximum number of pages for a fixed host, that could wait for download.
+     *                      Link extraction is suspended, while queue of the host of extracted link is full.
+     * @param threadPerTask whether each download and extraction should run in a new thread.
+     *                      Virtual threads are used, if they are supported by runtime.
+     *                      Numbers of simultaneous downloads and extractions are limited by semaphores.
+     *                      Otherwise, downloads reuse idle platform threads and extractions run
+     *                      on {@code extractors} threads, as without this option.
+     */
+    public WebCrawler(final Downloader downloader, final int downloaders, final int extractors, final int perHost,
+                      final double hostRate, final int hostBurst, final int hostQueue, final boolean threadPerTask) {
         this.downloader = downloader;
-        downloadService = Executors.newFixedThreadPool(downloaders);
-        extractorService = Executors.newFixedThreadPool(extractors);
-        this.perHost = perHost;
+        // Download threads are started by scheduler only for permitted downloads, so platform threads are bounded
+        final ExecutorService downloadThreads = threadPerTask
+                ? Objects.requireNonNullElseGet(newVirtualThreadExecutor(), Executors::newCachedThreadPool)
+                : null;
+        scheduler = new HostScheduler(downloaders, perHost, hostRate, hostBurst, hostQueue, downloadThreads);
+        final ExecutorService virtualThreads = threadPerTask ? newVirtualThreadExecutor() : null;
+        extractorService = virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(extractors);
+        extractorPermits = virtualThreads != null ? new Semaphore(extractors) : null;
+    }
+
+    /**
+     * Returns executor, that starts a new virtual thread for each task, or {@code null},
+     * if virtual threads are not supported by runtime.
+     * Waiting extractions block their own virtual threads, that is cheap, while platform threads are not.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void extract(final Runnable task) {
+        if (extractorPermits == null) {
+            extractorService.submit(task);
+        } else {
+            extractorService.submit(() -> {
+                extractorPermits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    extractorPermits.release();
+                }
+            });
+        }
     }
 
     /**
@@ -46,7 +111,7 @@ public class WebCrawler implements AdvancedCrawler {
      */
     @Override
     public void close() {
-        shutdownAndAwaitTermination(downloadService);
+        scheduler.close();
         shutdownAndAwaitTermination(extractorService);
     }
 
@@ -64,62 +129,6 @@ public class WebCrawler implements AdvancedCrawler {
         }
     }
 
-    private void process(final int depth, final Set<String> downloaded, final Map<String, IOException> errors,
-                         Set<String> prevLevelURLs, final List<String> permittedHosts,
-                         final boolean needCheck) {
-        final Phaser phaser = new Phaser(1);
-        while (phaser.getPhase() < depth) {
-            final Set<String> newLevelURLs = ConcurrentHashMap.newKeySet();
-            final Set<String> finalPrevLevelURLs = prevLevelURLs;
-            prevLevelURLs.forEach(url -> processURL(depth, url, phaser,
-                    downloaded, errors, finalPrevLevelURLs, newLevelURLs, permittedHosts, needCheck));
-            phaser.arriveAndAwaitAdvance();
-            prevLevelURLs = newLevelURLs;
-        }
-    }
-
-    private void processURL(final int depth, final String url, final Phaser phaser, final Set<String> downloaded,
-                            final Map<String, IOException> errors, final Set<String> prevLevelURLs,
-                            final Set<String> newLevelURLs, final List<String> permittedHosts, final boolean needCheck) {
-        try {
-            final String hostName = URLUtils.getHost(url);
-            if (needCheck && !permittedHosts.contains(hostName)) {
-                return;
-            }
-            hosts.putIfAbsent(hostName, new Host());
-            final Host host = hosts.get(hostName);
-            phaser.register();
-            host.addTask(() -> {
-                try {
-                    final Document document = downloader.download(url);
-                    downloaded.add(url);
-                    if (phaser.getPhase() + 1 < depth) {
-                        phaser.register();
-                        extractorService.submit(() -> {
-                            try {
-                                document.extractLinks()
-                                        .stream()
-                                        .filter(x -> !(downloaded.contains(x) || errors.containsKey(x)
-                                                || prevLevelURLs.contains(x)))
-                                        .forEach(newLevelURLs::add);
-                            } catch (IOException ignored) {
-                                //  no operations
-                            } finally {
-                                phaser.arriveAndDeregister();
-                            }
-                        });
-                    }
-                } catch (IOException e) {
-                    errors.put(url, e);
-                } finally {
-                    phaser.arriveAndDeregister();
-                }
-            });
-        } catch (MalformedURLException e) {
-            errors.put(url, e);
-        }
-    }
-
     /**
      * Downloads web site up to specified depth.
      *
@@ -134,43 +143,569 @@ public class WebCrawler implements AdvancedCrawler {
     }
 
     private Result download(final String url, final int depth, final List<String> permittedHosts, final boolean needCheck) {
-        final Set<String> downloaded = ConcurrentHashMap.newKeySet();
-        final Map<String, IOException> errors = new ConcurrentHashMap<>();
-        final Set<String> levelURLs = ConcurrentHashMap.newKeySet();
-        hosts = new ConcurrentHashMap<>();
-        levelURLs.add(url);
-        process(depth, downloaded, errors, levelURLs, permittedHosts, needCheck);
-        return new Result(new ArrayList<>(downloaded), errors);
+        final ResultCollector collector = new ResultCollector();
+        await(new Crawl(depth, permittedHosts, needCheck, collector, null, null).start(url));
+        return collector.toResult();
+    }
+
+    /**
+     * Downloads web site up to specified depth and checkpoints crawl to {@code checkpoint} file.
+     * If crawl is interrupted by crash or cancellation, it could be continued by {@link #resume(Path)}.
+     * After completion, checkpoint contains the whole result, so it could be read by {@link #resume(Path)}
+     * without downloading pages again.
+     *
+     * @param url            start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth          download depth.
+     * @param permittedHosts domains to follow, pages on another domains should be ignored.
+     * @param checkpoint     checkpoint file, that is replaced if exists. URLs of downloaded pages are
+     *                       written to {@code <checkpoint>.urls} file.
+     * @return download result.
+     * @throws IOException if checkpoint cannot be created.
+     */
+    public Result download(final String url, final int depth, final List<String> permittedHosts,
+                           final Path checkpoint) throws IOException {
+        final ResultCollector collector = new ResultCollector();
+        final CrawlLog log = CrawlLog.create(checkpoint, url, depth, permittedHosts);
+        await(new Crawl(depth, permittedHosts, true, collector, log, null).start(url));
+        return collector.toResult();
     }
 
+    /**
+     * Continues crawl checkpointed by {@link #download(String, int, List, Path)}.
+     * Pages, that were downloaded and whose links were visited before checkpoint, are not downloaded again,
+     * pages of the frontier are downloaded at their depths. Previous pages, that are found at smaller depth,
+     * are downloaded again without being reported to expand them at the new depth, so result is the same
+     * as of uninterrupted crawl. Errors of previous pages are restored with their messages only.
+     * Checkpoint continues to be written.
+     *
+     * @param checkpoint checkpoint file.
+     * @return result of the whole crawl.
+     * @throws IOException if checkpoint cannot be read or is malformed.
+     */
+    public Result resume(final Path checkpoint) throws IOException {
+        final CrawlLog log = CrawlLog.open(checkpoint);
+        final ResultCollector collector = new ResultCollector();
+        final Crawl crawl = new Crawl(log.depth(), log.permittedHosts(), true, collector, log, null);
+        final List<String> frontier = log.restore(crawl.visited, crawl.processed,
+                collector.downloaded::add, collector.errors::put);
+        await(crawl.resume(log.url(), frontier));
+        return collector.toResult();
+    }
+
+    /**
+     * Waits for {@code job}. If waiting thread is interrupted, job is cancelled.
+     */
+    private static void await(final CrawlJob job) {
+        try {
+            job.await();
+        } catch (final InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts crawling web site up to specified depth and returns without waiting for its completion.
+     * Results are passed to {@code listener} as soon as they are available.
+     * Any number of jobs could run at the same time, sharing threads and per-host limits of this crawler.
+     *
+     * @param url      start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth    download depth.
+     * @param listener receiver of results.
+     * @return handle of started crawl.
+     */
+    public CrawlJob start(final String url, final int depth, final CrawlListener listener) {
+        return start(url, depth, listener, null);
+    }
+
+    /**
+     * Starts best-first crawl: pages are downloaded in order of decreasing {@code priority},
+     * subject to per-host limits. Crawl could be cut off by time budget using {@link CrawlJob#await(long, TimeUnit)}
+     * and {@link CrawlJob#cancel()}, keeping the best pages found so far.
+     * Pages of all depths up to {@code depth} are downloaded, as in breadth-first crawl.
+     *
+     * @param url      start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth    download depth.
+     * @param listener receiver of results.
+     * @param priority priority of pages, {@code null} to download pages in order of discovery.
+     * @return handle of started crawl.
+     */
+    public CrawlJob start(final String url, final int depth, final CrawlListener listener,
+                          final PagePriority priority) {
+        return new Crawl(depth, List.of(), false, listener, null, priority).start(url);
+    }
+
+    /**
+     * Starts crawling web site up to specified depth and returns without waiting for its completion.
+     *
+     * @param url            start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth          download depth.
+     * @param permittedHosts domains to follow, pages on another domains should be ignored.
+     * @param listener       receiver of results.
+     * @return handle of started crawl.
+     * @see #start(String, int, CrawlListener)
+     */
+    public CrawlJob start(final String url, final int depth, final List<String> permittedHosts,
+                          final CrawlListener listener) {
+        return start(url, depth, permittedHosts, listener, null);
+    }
+
+    /**
+     * Starts best-first crawl of permitted hosts.
+     *
+     * @param url            start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth          download depth.
+     * @param permittedHosts domains to follow, pages on another domains should be ignored.
+     * @param listener       receiver of results.
+     * @param priority       priority of pages, {@code null} to download pages in order of discovery.
+     * @return handle of started crawl.
+     * @see #start(String, int, CrawlListener, PagePriority)
+     */
+    public CrawlJob start(final String url, final int depth, final List<String> permittedHosts,
+                          final CrawlListener listener, final PagePriority priority) {
+        return new Crawl(depth, permittedHosts, true, listener, null, priority).start(url);
+    }
+
+    /**
+     * Crawls web site up to specified depth and passes results to {@code listener} as soon as they are available.
+     * Results aren't accumulated, so memory usage doesn't depend on number of downloaded pages.
+     * Returns after {@link CrawlListener#completed()} is called. If calling thread is interrupted,
+     * the crawl is cancelled.
+     *
+     * @param url      start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth    download depth.
+     * @param listener receiver of results.
+     */
+    public void crawl(final String url, final int depth, final CrawlListener listener) {
+        await(start(url, depth, listener));
+    }
+
+    /**
+     * Crawls web site up to specified depth and passes results to {@code listener} as soon as they are available.
+     *
+     * @param url            start <a href="http://tools.ietf.org/html/rfc3986">URL</a>.
+     * @param depth          download depth.
+     * @param permittedHosts domains to follow, pages on another domains should be ignored.
+     * @param listener       receiver of results.
+     * @see #crawl(String, int, CrawlListener)
+     */
+    public void crawl(final String url, final int depth, final List<String> permittedHosts,
+                      final CrawlListener listener) {
+        await(start(url, depth, permittedHosts, listener));
+    }
+
+    private static class ResultCollector implements CrawlListener {
+        private final Queue<String> downloaded = new ConcurrentLinkedQueue<>();
+        private final Map<String, IOException> errors = new ConcurrentHashMap<>();
+
+        @Override
+        public void downloaded(final String url, final Document document, final int depth) {
+            downloaded.add(url);
+        }
+
+        @Override
+        public void failed(final String url, final IOException error) {
+            errors.put(url, error);
+        }
+
+        private Result toResult() {
+            return new Result(new ArrayList<>(downloaded), errors);
+        }
+    }
+
+    /**
+     * State of a single crawl job. Pages are downloaded as soon as they are found, without waiting
+     * for the rest of their level, and crawl completes, when there are no pending tasks.
+     * <p>
+     * Result is the same as of breadth-first crawl: each URL is processed at its minimal depth.
+     * If a downloaded page is later found at smaller depth, its links are visited again at the new depth,
+     * so pages with extracted links are kept, while they could be found at smaller depth. Links of page
+     * expanded at depth {@code d} could be found at smaller depth only by pending work of depth {@code d - 2}
+     * or less, so numbers of pending tasks are counted by depth and page is dropped, as soon as there is
+     * no such work. Pages of maximal depth are kept unexpanded by the same rule. Page is never downloaded
+     * or extracted twice.
+     */
+    private class Crawl implements CrawlJob {
+        private final int depth;
+        private final List<String> permittedHosts;
+        private final boolean needCheck;
+        private final CrawlListener listener;
+        private final CrawlLog log;
+        private final PagePriority priority;
+        private final FingerprintSet visited = new FingerprintSet();
+        /**
+         * Pages, that are not kept in {@link #pages}, with depths, at which they were processed:
+         * pages restored from checkpoint, that are downloaded again if found at smaller depth,
+         * and failed and skipped pages with depth {@code 0}, that are never downloaded again.
+         */
+        private final FingerprintSet processed = new FingerprintSet();
+        private final Map<String, Page> pages = new ConcurrentHashMap<>();
+        /**
+         * Depths of in-flight downloads, that were found at smaller depth after scheduling.
+         */
+        private final Map<String, Integer> holds = new ConcurrentHashMap<>();
+        /**
+         * Numbers of pending tasks by depth, the last element counts tasks of all larger depths.
+         */
+        private final AtomicIntegerArray levels;
+        private volatile int floor;
+        /**
+         * Maximal depth of scheduled pages.
+         */
+        private final AtomicInteger deepest = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled;
+
+        private Crawl(final int depth, final List<String> permittedHosts, final boolean needCheck,
+                      final CrawlListener listener, final CrawlLog log, final PagePriority priority) {
+            this.depth = depth;
+            this.permittedHosts = permittedHosts;
+            this.needCheck = needCheck;
+            this.listener = listener;
+            this.log = log;
+            this.priority = priority;
+            levels = new AtomicIntegerArray(Math.min(depth, MAX_TRACKED_DEPTH) + 1);
+            levels.set(0, 1);
+        }
 
+        private Crawl start(final String url) {
+            return resume(url, List.of());
+        }
 
-    private class Host {
-        private final Queue<Runnable> waiting;
-        private final Semaphore semaphore;
+        /**
+         * Downloads {@code frontier} pages, that are already visited, and visits {@code url},
+         * if it wasn't visited yet.
+         */
+        private Crawl resume(final String url, final List<String> frontier) {
+            if (log != null) {
+                log.start();
+            }
+            try {
+                frontier.forEach(this::schedule);
+                visit(url, 1);
+            } finally {
+                done(0);
+            }
+            return this;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
 
-        private Host() {
-            waiting = new ConcurrentLinkedQueue<>();
-            semaphore = new Semaphore(perHost);
+        @Override
+        public void await() throws InterruptedException {
+            done.await();
         }
 
-        private void addTask(final Runnable task) {
-            final Runnable r = () -> {
-                task.run();
-                if (waiting.isEmpty()) {
-                    semaphore.release();
-                } else {
-                    downloadService.submit(waiting.poll());
+        @Override
+        public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return done.await(timeout, unit);
+        }
+
+        private int level(final int pageDepth) {
+            return Math.min(pageDepth, levels.length() - 1);
+        }
+
+        /**
+         * Raises floor to minimal depth of pending tasks, reports depths below it as completed
+         * and drops pages, that couldn't be found at smaller depth.
+         * Minimal depth never decreases, as each task is added by a pending task of the same or smaller depth.
+         */
+        private void release(final int pageDepth) {
+            if (levels.decrementAndGet(level(pageDepth)) != 0) {
+                return;
+            }
+            synchronized (levels) {
+                int level = floor;
+                while (level < levels.length() && levels.get(level) == 0) {
+                    level++;
+                }
+                if (level > floor) {
+                    // Pending task has larger depth, than any completed one. The last level counts all larger depths,
+                    // so they are completed together, when there are no pending tasks
+                    final int completed = level < levels.length() ? level - 1 : deepest.get();
+                    for (int d = Math.max(floor, 1); d <= completed && !cancelled; d++) {
+                        final int completedDepth = d;
+                        callListener(() -> listener.depthCompleted(completedDepth));
+                    }
+                    floor = level;
+                    pages.values().removeIf(page -> isExpired(page.level()));
+                }
+            }
+        }
+
+        private boolean isExpired(final int pageDepth) {
+            return pageDepth <= floor + 1;
+        }
+
+        private void hold(final String url, final int urlDepth) {
+            levels.incrementAndGet(level(urlDepth));
+            final Integer previous = holds.put(url, urlDepth);
+            if (previous != null) {
+                release(previous);
+            }
+        }
+
+        private void releaseHold(final String url) {
+            final Integer held = holds.remove(url);
+            if (held != null) {
+                release(held);
+            }
+        }
+
+        private void done(final int level) {
+            release(level);
+            finish();
+        }
+
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                pages.clear();
+                holds.clear();
+                try {
+                    if (log != null) {
+                        log.close();
+                    }
+                    listener.completed();
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        /**
+         * Returns task, that is counted as pending work of depth {@code level} until completion.
+         */
+        private Runnable task(final int level, final Runnable task) {
+            pending.incrementAndGet();
+            levels.incrementAndGet(level(level));
+            return () -> {
+                try {
+                    if (!cancelled) {
+                        task.run();
+                    }
+                } finally {
+                    done(level);
                 }
             };
-            if (semaphore.tryAcquire()) {
-                downloadService.submit(r);
-            } else {
-                waiting.add(r);
+        }
+
+        private void visit(final String url, final int urlDepth) {
+            if (cancelled || urlDepth > depth) {
+                return;
+            }
+            final int previous = visited.visit(url, urlDepth);
+            if (urlDepth >= previous) {
+                return;
+            }
+            if (log != null) {
+                log.visited(url, urlDepth);
+            }
+            if (previous == VisitedSet.UNVISITED) {
+                schedule(url);
+                return;
+            }
+            // Page is either kept, processed or being downloaded. In the last case it is held
+            // at the new depth, until download task sees the new depth.
+            hold(url, urlDepth);
+            final Page page = pages.get(url);
+            if (page != null) {
+                releaseHold(url);
+                page.expand(urlDepth);
+            } else if (processed.depth(url) != VisitedSet.UNVISITED) {
+                releaseHold(url);
+                if (processed.visit(url, urlDepth) > urlDepth) {
+                    schedule(url, false);
+                }
             }
         }
-    }
 
+        private void schedule(final String url) {
+            schedule(url, true);
+        }
+
+        /**
+         * Schedules download of {@code url} at its current depth.
+         *
+         * @param report whether page should be reported, {@code false} for restored pages downloaded again
+         */
+        private void schedule(final String url, final boolean report) {
+            final int level = visited.depth(url);
+            deepest.accumulateAndGet(level, Math::max);
+            try {
+                final String hostName = URLUtils.getHost(url);
+                if (needCheck && !permittedHosts.contains(hostName)) {
+                    processed.visit(url, 0);
+                    return;
+                }
+                final double pagePriority = priority == null ? 0 : priority.priority(url, level);
+                scheduler.submit(hostName, pagePriority, task(level, () -> {
+                    try {
+                        final Page page = new Page(url, downloader.download(url));
+                        if (report) {
+                            callListener(() -> listener.downloaded(url, page, visited.depth(url)));
+                            if (log != null) {
+                                log.downloaded(url);
+                            }
+                        }
+                        pages.put(url, page);
+                        final int pageDepth = visited.depth(url);
+                        if (pageDepth < depth) {
+                            page.expand(pageDepth);
+                        } else {
+                            page.keep(pageDepth);
+                        }
+                    } catch (final IOException e) {
+                        processed.visit(url, 0);
+                        if (report) {
+                            failed(url, e);
+                        } else if (log != null) {
+                            //  page was reported as downloaded, it just has no links now
+                            log.expanded(url, visited.depth(url));
+                        }
+                    } finally {
+                        releaseHold(url);
+                    }
+                }));
+            } catch (final MalformedURLException e) {
+                processed.visit(url, 0);
+                failed(url, e);
+            } catch (final InterruptedException e) {
+                done(level);
+                final IOException error = new InterruptedIOException("Interrupted while scheduling download");
+                callListener(() -> listener.failed(url, error));
+                Thread.currentThread().interrupt();
+            } catch (final RejectedExecutionException e) {
+                done(level);
+                callListener(() -> listener.failed(url, new IOException("Crawler is closed", e)));
+            }
+        }
+
+        private void failed(final String url, final IOException error) {
+            if (log != null) {
+                log.failed(url, visited.depth(url), error);
+            }
+            callListener(() -> listener.failed(url, error));
+        }
+
+        /**
+         * Calls listener, so that its exception doesn't leave page unprocessed.
+         * Exception is passed to uncaught exception handler, as exception of a task would be.
+         */
+        private void callListener(final Runnable call) {
+            try {
+                call.run();
+            } catch (final RuntimeException e) {
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+
+        /**
+         * Downloaded page, that extracts its links once and keeps them, while page is kept in {@link #pages}.
+         */
+        private class Page implements Document {
+            private final String url;
+            private final Object extraction = new Object();
+            private Document document;
+            private List<String> links;
+            private IOException error;
+            private int expanded = VisitedSet.UNVISITED;
+            private int level = VisitedSet.UNVISITED;
+
+            private Page(final String url, final Document document) {
+                this.url = url;
+                this.document = document;
+            }
+
+            @Override
+            public List<String> extractLinks() throws IOException {
+                synchronized (extraction) {
+                    if (document != null) {
+                        try {
+                            links = document.extractLinks();
+                        } catch (final IOException e) {
+                            error = e;
+                        }
+                        document = null;
+                    }
+                    if (error != null) {
+                        throw error;
+                    }
+                    return links;
+                }
+            }
+
+            /**
+             * Returns minimal depth, at which page was kept.
+             */
+            private synchronized int level() {
+                return level;
+            }
+
+            /**
+             * Keeps page of depth {@code pageDepth} without expansion, while it could be found at smaller depth.
+             */
+            private void keep(final int pageDepth) {
+                synchronized (this) {
+                    level = Math.min(level, pageDepth);
+                }
+                if (isExpired(pageDepth)) {
+                    pages.remove(url);
+                }
+            }
+
+            /**
+             * Visits links of page at depth {@code pageDepth + 1}, unless they were visited at smaller depth.
+             * Drops page, if it couldn't be found at smaller depth anymore.
+             */
+            private void expand(final int pageDepth) {
+                synchronized (this) {
+                    if (pageDepth >= depth || pageDepth >= expanded) {
+                        return;
+                    }
+                    expanded = pageDepth;
+                    level = Math.min(level, pageDepth);
+                }
+                extract(task(pageDepth, this::visitLinks));
+                if (isExpired(pageDepth)) {
+                    pages.remove(url);
+                }
+            }
+
+            private void visitLinks() {
+                List<String> pageLinks;
+                try {
+                    pageLinks = extractLinks();
+                } catch (final IOException e) {
+                    pageLinks = List.of();
+                }
+                final int pageDepth;
+                synchronized (this) {
+                    pageDepth = expanded;
+                }
+                for (final String link : pageLinks) {
+                    visit(link, pageDepth + 1);
+                }
+                if (log != null && !cancelled) {
+                    log.expanded(url, pageDepth);
+                }
+            }
+        }
+    }
 
     /**
      * Invokes web-crawler with given arguments.
@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.CrawlListener;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class BaseTest {
+    protected static final String OTHER_HOST = "other.test";
+
+    protected static String url(final int host, final int page) {
+        return "http://h" + host + ".test/page" + page;
+    }
+
+    protected static List<String> hosts(final int hosts) {
+        final List<String> result = new ArrayList<>();
+        for (int i = 0; i < hosts; i++) {
+            result.add("h" + i + ".test");
+        }
+        return result;
+    }
+
+    protected static void checkResult(final Result expected, final Result actual) {
+        Assert.assertEquals("downloaded twice", actual.getDownloaded().size(),
+                new HashSet<>(actual.getDownloaded()).size());
+        Assert.assertEquals(new HashSet<>(expected.getDownloaded()), new HashSet<>(actual.getDownloaded()));
+        Assert.assertEquals(expected.getErrors().keySet(), actual.getErrors().keySet());
+    }
+
+    /**
+     * Listener, that collects reported results.
+     */
+    protected static class Collector implements CrawlListener {
+        private final Queue<String> downloaded = new ConcurrentLinkedQueue<>();
+        private final Map<String, IOException> errors = new ConcurrentHashMap<>();
+        private final AtomicInteger completed = new AtomicInteger();
+
+        @Override
+        public void downloaded(final String url, final Document document, final int depth) {
+            downloaded.add(url);
+        }
+
+        @Override
+        public void failed(final String url, final IOException error) {
+            errors.put(url, error);
+        }
+
+        @Override
+        public void completed() {
+            completed.incrementAndGet();
+        }
+
+        protected int completions() {
+            return completed.get();
+        }
+
+        protected Result toResult() {
+            return new Result(new ArrayList<>(downloaded), errors);
+        }
+    }
+
+    /**
+     * In-memory site, that counts downloads of every page.
+     */
+    protected static class Site implements Downloader {
+        private final Map<String, List<String>> links = new HashMap<>();
+        private final Set<String> failing = new HashSet<>();
+        private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+        private final AtomicInteger total = new AtomicInteger();
+        private volatile Consumer<String> hook = url -> {};
+        private volatile Consumer<String> extractHook = url -> {};
+
+        /**
+         * Generates random site of {@code pages} pages on {@code hosts} hosts.
+         * Every 17th page fails to download, some links lead to a host, that is not permitted.
+         */
+        protected static Site random(final long seed, final int pages, final int hosts, final int degree) {
+            final Random random = new Random(seed);
+            final Site site = new Site();
+            for (int i = 0; i < pages; i++) {
+                final List<String> pageLinks = new ArrayList<>();
+                for (int j = random.nextInt(degree + 1); j > 0; j--) {
+                    final int target = random.nextInt(pages);
+                    pageLinks.add(url(target % hosts, target));
+                }
+                if (random.nextInt(10) == 0) {
+                    pageLinks.add("http://" + OTHER_HOST + "/page" + i);
+                }
+                site.page(url(i % hosts, i), pageLinks.toArray(new String[0]));
+                if (i % 17 == 16) {
+                    site.failing.add(url(i % hosts, i));
+                }
+            }
+            return site;
+        }
+
+        protected Site page(final String url, final String... pageLinks) {
+            links.put(url, List.of(pageLinks));
+            return this;
+        }
+
+        /**
+         * Sets action, that runs at the start of each download.
+         */
+        protected void onDownload(final Consumer<String> hook) {
+            this.hook = hook;
+        }
+
+        /**
+         * Returns minimal depths of pages found by breadth-first crawl from {@code url} up to {@code depth}.
+         * Pages of other hosts than {@code hosts} are found, but not downloaded.
+         */
+        protected Map<String, Integer> depths(final String url, final int depth, final List<String> hosts) {
+            final Map<String, Integer> depths = new HashMap<>(Map.of(url, 1));
+            List<String> level = List.of(url);
+            for (int d = 1; d < depth; d++) {
+                final List<String> next = new ArrayList<>();
+                for (final String page : level) {
+                    if (isAvailable(page, hosts)) {
+                        for (final String link : links.get(page)) {
+                            if (depths.putIfAbsent(link, d + 1) == null) {
+                                next.add(link);
+                            }
+                        }
+                    }
+                }
+                level = next;
+            }
+            return depths;
+        }
+
+        /**
+         * Returns result of breadth-first crawl from {@code url} up to {@code depth}.
+         */
+        protected Result reference(final String url, final int depth, final List<String> hosts) {
+            final List<String> downloaded = new ArrayList<>();
+            final Map<String, IOException> errors = new HashMap<>();
+            for (final String page : depths(url, depth, hosts).keySet()) {
+                if (isAvailable(page, hosts)) {
+                    downloaded.add(page);
+                } else if (isPermitted(page, hosts)) {
+                    errors.put(page, new IOException("Cannot download " + page));
+                }
+            }
+            return new Result(downloaded, errors);
+        }
+
+        protected static boolean isPermitted(final String url, final List<String> hosts) {
+            return hosts.contains(URI.create(url).getHost());
+        }
+
+        private boolean isAvailable(final String url, final List<String> hosts) {
+            return isPermitted(url, hosts) && links.containsKey(url) && !failing.contains(url);
+        }
+
+        /**
+         * Sets action, that runs on each extraction of links.
+         */
+        protected void onExtract(final Consumer<String> hook) {
+            this.extractHook = hook;
+        }
+
+        protected int downloads(final String url) {
+            final AtomicInteger count = downloads.get(url);
+            return count == null ? 0 : count.get();
+        }
+
+        protected int total() {
+            return total.get();
+        }
+
+        @Override
+        public Document download(final String url) throws IOException {
+            downloads.computeIfAbsent(url, u -> new AtomicInteger()).incrementAndGet();
+            total.incrementAndGet();
+            hook.accept(url);
+            if (failing.contains(url) || !links.containsKey(url)) {
+                throw new IOException("Cannot download " + url);
+            }
+            final List<String> pageLinks = links.get(url);
+            return () -> {
+                extractHook.accept(url);
+                return pageLinks;
+            };
+        }
+    }
+}
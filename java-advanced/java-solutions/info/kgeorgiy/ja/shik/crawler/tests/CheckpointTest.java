@@ -0,0 +1,220 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+public class CheckpointTest extends BaseTest {
+    private static final int PAGES = 3000;
+    private static final int HOSTS = 5;
+    private static final int DEGREE = 6;
+    private static final int DEPTH = 12;
+    private static final List<String> PERMITTED = hosts(HOSTS - 1);
+
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("checkpoint");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (final Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static Path urls(final Path checkpoint) {
+        return checkpoint.resolveSibling(checkpoint.getFileName() + ".urls");
+    }
+
+    private static Result plain(final long seed, final String url, final int depth, final List<String> hosts) {
+        try (final WebCrawler crawler = new WebCrawler(Site.random(seed, PAGES, HOSTS, DEGREE), 8, 4, 3)) {
+            return crawler.download(url, depth, hosts);
+        }
+    }
+
+    private static Result resume(final Site site, final Path checkpoint) throws IOException {
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+            return crawler.resume(checkpoint);
+        }
+    }
+
+    /**
+     * Starts checkpointed crawl in a new thread and interrupts it at the start of download number {@code limit}.
+     */
+    private static Result interrupt(final WebCrawler crawler, final Site site, final Path checkpoint,
+                                    final int limit) throws InterruptedException {
+        final Result[] result = new Result[1];
+        final Thread thread = new Thread(() -> {
+            try {
+                result[0] = crawler.download(url(0, 0), DEPTH, PERMITTED, checkpoint);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        site.onDownload(url -> {
+            if (site.total() == limit) {
+                thread.interrupt();
+            }
+        });
+        thread.start();
+        thread.join();
+        return result[0];
+    }
+
+    @Test
+    public void test_01_checkpointedDownload() throws IOException {
+        final Path checkpoint = dir.resolve("crawl");
+        final Site site = Site.random(1, PAGES, HOSTS, DEGREE);
+        final Result result;
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+            result = crawler.download(url(0, 0), DEPTH, PERMITTED, checkpoint);
+        }
+        checkResult(plain(1, url(0, 0), DEPTH, PERMITTED), result);
+        Assert.assertTrue(Files.exists(urls(checkpoint)));
+    }
+
+    @Test
+    public void test_02_resumeCompleted() throws IOException {
+        final Path checkpoint = dir.resolve("crawl");
+        try (final WebCrawler crawler = new WebCrawler(Site.random(2, PAGES, HOSTS, DEGREE), 8, 4, 3)) {
+            crawler.download(url(0, 0), DEPTH, PERMITTED, checkpoint);
+        }
+        final Site site = Site.random(2, PAGES, HOSTS, DEGREE);
+        checkResult(plain(2, url(0, 0), DEPTH, PERMITTED), resume(site, checkpoint));
+        Assert.assertEquals(0, site.total());
+    }
+
+    @Test
+    public void test_03_resumeInterrupted() throws IOException, InterruptedException {
+        for (final int limit : new int[]{1, 10, 100, 500, 1000}) {
+            final Path checkpoint = dir.resolve("crawl" + limit);
+            final Site site = Site.random(3, PAGES, HOSTS, DEGREE);
+            try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+                interrupt(crawler, site, checkpoint, limit);
+            }
+            final Site resumed = Site.random(3, PAGES, HOSTS, DEGREE);
+            checkResult(plain(3, url(0, 0), DEPTH, PERMITTED), resume(resumed, checkpoint));
+            Assert.assertTrue("nothing was crawled before interruption", site.total() >= limit);
+        }
+    }
+
+    @Test
+    public void test_04_resumeCrashed() throws IOException {
+        final Path checkpoint = dir.resolve("crawl");
+        final Site site = Site.random(4, PAGES, HOSTS, DEGREE);
+        final List<Path> copies = new ArrayList<>();
+        site.onDownload(url -> {
+            final int total = site.total();
+            if (total % 300 == 0) {
+                // Main file is copied first, as it is synced after the URLs it refers to
+                final Path copy = dir.resolve("copy" + total);
+                try {
+                    Files.write(copy, Files.readAllBytes(checkpoint));
+                    Files.write(urls(copy), Files.readAllBytes(urls(checkpoint)));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                synchronized (copies) {
+                    copies.add(copy);
+                }
+            }
+        });
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+            crawler.download(url(0, 0), DEPTH, PERMITTED, checkpoint);
+        }
+        Assert.assertFalse(copies.isEmpty());
+        final Result expected = plain(4, url(0, 0), DEPTH, PERMITTED);
+        for (final Path copy : copies) {
+            checkResult(expected, resume(Site.random(4, PAGES, HOSTS, DEGREE), copy));
+        }
+    }
+
+    /**
+     * Page {@code 4} is reachable from root through slow page at depth 3 and through pages {@code 2, 3} at depth 4.
+     */
+    private static Site detour() {
+        return new Site()
+                .page(url(0, 0), url(1, 1), url(0, 2))
+                .page(url(1, 1), url(0, 4))
+                .page(url(0, 2), url(0, 3))
+                .page(url(0, 3), url(0, 4))
+                .page(url(0, 4), url(0, 5))
+                .page(url(0, 5));
+    }
+
+    @Test(timeout = 10_000)
+    public void test_05_resumeAtSmallerDepth() throws IOException, InterruptedException {
+        final String root = url(0, 0);
+        final String page = url(0, 4);
+        final String leaf = url(0, 5);
+        final Site site = detour();
+        final Result expected;
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+            expected = crawler.download(root, 4, hosts(2));
+        }
+        Assert.assertTrue(expected.getDownloaded().contains(leaf));
+
+        // Page is downloaded at depth 4 as a leaf, while its shorter path is blocked
+        final Path checkpoint = dir.resolve("crawl");
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final CountDownLatch slowReleased = new CountDownLatch(1);
+        final Site blocked = detour();
+        blocked.onDownload(url -> {
+            if (url.equals(url(1, 1))) {
+                slowStarted.countDown();
+                awaitUninterruptibly(slowReleased);
+            }
+        });
+        final Thread thread;
+        try (final WebCrawler crawler = new WebCrawler(blocked, 8, 4, 3)) {
+            thread = new Thread(() -> {
+                try {
+                    crawler.download(root, 4, hosts(2), checkpoint);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            thread.start();
+            slowStarted.await();
+            while (!Files.exists(urls(checkpoint)) || !new String(Files.readAllBytes(urls(checkpoint)), StandardCharsets.ISO_8859_1).contains(page)) {
+                Thread.sleep(10);
+            }
+            thread.interrupt();
+            thread.join();
+            slowReleased.countDown();
+        }
+        Assert.assertEquals(0, blocked.downloads(leaf));
+
+        final Site resumed = detour();
+        checkResult(expected, resume(resumed, checkpoint));
+        Assert.assertEquals(1, resumed.downloads(leaf));
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (final InterruptedException ignored) {
+                // Download is released by test only
+            }
+        }
+    }
+}
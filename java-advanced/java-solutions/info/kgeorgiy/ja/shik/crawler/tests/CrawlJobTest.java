@@ -0,0 +1,134 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.CrawlJob;
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CrawlJobTest extends BaseTest {
+    private static final int PAGES = 1000;
+    private static final int HOSTS = 4;
+    private static final int DEGREE = 6;
+    private static final int DEPTH = 6;
+    private static final int DOWNLOADERS = 8;
+    private static final List<String> PERMITTED = hosts(HOSTS);
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void checkDone(final CrawlJob job, final Collector collector) throws InterruptedException {
+        Assert.assertTrue("job is not completed", job.await(1, TimeUnit.MINUTES));
+        Assert.assertTrue(job.isDone());
+        Assert.assertEquals(1, collector.completions());
+    }
+
+    @Test
+    public void test_01_concurrentJobs() throws InterruptedException {
+        final Site site = Site.random(1, PAGES, HOSTS, DEGREE);
+        final CountDownLatch started = new CountDownLatch(1);
+        site.onDownload(url -> await(started));
+        final List<String> urls = new ArrayList<>();
+        final List<CrawlJob> jobs = new ArrayList<>();
+        final List<Collector> collectors = new ArrayList<>();
+        try (final WebCrawler crawler = new WebCrawler(site, DOWNLOADERS, 4, 3)) {
+            for (int i = 0; i < 6; i++) {
+                final String url = url(i * 7 % HOSTS, i * 7);
+                final Collector collector = new Collector();
+                urls.add(url);
+                collectors.add(collector);
+                jobs.add(i % 2 == 0
+                        ? crawler.start(url, DEPTH - i % 3, PERMITTED, collector)
+                        : crawler.start(url, DEPTH - i % 3, collector));
+            }
+            for (final CrawlJob job : jobs) {
+                Assert.assertFalse("job completed before downloads", job.isDone());
+            }
+            started.countDown();
+            for (int i = 0; i < jobs.size(); i++) {
+                checkDone(jobs.get(i), collectors.get(i));
+            }
+        }
+        final Site reference = Site.random(1, PAGES, HOSTS, DEGREE);
+        for (int i = 0; i < jobs.size(); i++) {
+            final Result expected;
+            try (final WebCrawler crawler = new WebCrawler(reference, DOWNLOADERS, 4, 3)) {
+                expected = i % 2 == 0
+                        ? crawler.download(urls.get(i), DEPTH - i % 3, PERMITTED)
+                        : crawler.download(urls.get(i), DEPTH - i % 3);
+            }
+            checkResult(expected, collectors.get(i).toResult());
+            Assert.assertFalse(jobs.get(i).isCancelled());
+        }
+    }
+
+    @Test
+    public void test_02_cancel() throws InterruptedException {
+        final int limit = 30;
+        final Site site = Site.random(3, PAGES, HOSTS, DEGREE);
+        final CountDownLatch started = new CountDownLatch(1);
+        site.onDownload(url -> await(started));
+        final CrawlJob[] cancelled = new CrawlJob[1];
+        final AtomicInteger reportedAfterCancel = new AtomicInteger();
+        final Collector cancelling = new Collector() {
+            private final AtomicInteger reported = new AtomicInteger();
+
+            @Override
+            public void downloaded(final String url, final Document document, final int depth) {
+                super.downloaded(url, document, depth);
+                if (reported.incrementAndGet() == limit) {
+                    cancelled[0].cancel();
+                } else if (cancelled[0].isCancelled()) {
+                    reportedAfterCancel.incrementAndGet();
+                }
+            }
+        };
+        final Collector other = new Collector();
+        try (final WebCrawler crawler = new WebCrawler(site, DOWNLOADERS, 4, 3)) {
+            cancelled[0] = crawler.start(url(0, 0), DEPTH, PERMITTED, cancelling);
+            final CrawlJob job = crawler.start(url(3, 7), DEPTH, PERMITTED, other);
+            started.countDown();
+            checkDone(cancelled[0], cancelling);
+            checkDone(job, other);
+            Assert.assertTrue(cancelled[0].isCancelled());
+            Assert.assertFalse(job.isCancelled());
+        }
+        Assert.assertTrue("reported after cancel: " + reportedAfterCancel.get(),
+                reportedAfterCancel.get() <= DOWNLOADERS);
+        checkResult(site.reference(url(3, 7), DEPTH, PERMITTED), other.toResult());
+        Assert.assertTrue("cancelled job is not stopped", cancelling.toResult().getDownloaded().size()
+                < site.reference(url(0, 0), DEPTH, PERMITTED).getDownloaded().size() / 2);
+    }
+
+    @Test
+    public void test_03_awaitTimeout() throws InterruptedException {
+        final Site site = Site.random(3, PAGES, HOSTS, DEGREE);
+        final CountDownLatch started = new CountDownLatch(1);
+        site.onDownload(url -> await(started));
+        final Collector collector = new Collector();
+        try (final WebCrawler crawler = new WebCrawler(site, DOWNLOADERS, 4, 3)) {
+            final CrawlJob job = crawler.start(url(0, 0), DEPTH, PERMITTED, collector);
+            Assert.assertFalse(job.await(10, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(job.isDone());
+            Assert.assertEquals(0, collector.completions());
+            job.cancel();
+            started.countDown();
+            job.await();
+            Assert.assertTrue(job.isDone());
+            Assert.assertEquals(1, collector.completions());
+            Assert.assertTrue(collector.toResult().getDownloaded().size() <= 1);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+
+public class CrawlerTests {
+    public static void main(final String[] args) {
+        final JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.err));
+        System.exit(junit.run(FingerprintSetTest.class, HostLimitTest.class, CheckpointTest.class,
+                ListenerTest.class, RandomSiteTest.class, CrawlJobTest.class,
+                PageCacheTest.class).wasSuccessful() ? 0 : 1);
+    }
+}
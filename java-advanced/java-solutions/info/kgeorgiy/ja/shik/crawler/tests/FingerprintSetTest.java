@@ -0,0 +1,102 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class FingerprintSetTest extends BaseTest {
+    private static final int UNVISITED = Integer.MAX_VALUE;
+
+    private final Object set;
+    private final Method visit;
+    private final Method depth;
+
+    public FingerprintSetTest() throws ReflectiveOperationException {
+        final Class<?> type = Class.forName("info.kgeorgiy.ja.shik.crawler.FingerprintSet");
+        final Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        set = constructor.newInstance();
+        visit = type.getDeclaredMethod("visit", String.class, int.class);
+        visit.setAccessible(true);
+        depth = type.getDeclaredMethod("depth", String.class);
+        depth.setAccessible(true);
+    }
+
+    private int visit(final String url, final int urlDepth) {
+        return invoke(visit, url, urlDepth);
+    }
+
+    private int depth(final String url) {
+        return invoke(depth, url);
+    }
+
+    private int invoke(final Method method, final Object... args) {
+        try {
+            return (Integer) method.invoke(set, args);
+        } catch (final IllegalAccessException | InvocationTargetException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void test_01_minimalDepth() {
+        final String url = url(0, 0);
+        Assert.assertEquals(UNVISITED, depth(url));
+        Assert.assertEquals(UNVISITED, visit(url, 5));
+        Assert.assertEquals(5, visit(url, 7));
+        Assert.assertEquals(5, depth(url));
+        Assert.assertEquals(5, visit(url, 3));
+        Assert.assertEquals(3, depth(url));
+        Assert.assertEquals(UNVISITED, depth(url(0, 1)));
+    }
+
+    @Test
+    public void test_02_manyUrls() {
+        final int urls = 200_000;
+        for (int i = 0; i < urls; i++) {
+            Assert.assertEquals(UNVISITED, visit(url(i % 7, i), i % 100 + 1));
+        }
+        for (int i = 0; i < urls; i++) {
+            Assert.assertEquals(i % 100 + 1, depth(url(i % 7, i)));
+        }
+        Assert.assertEquals(UNVISITED, depth(url(0, urls)));
+    }
+
+    @Test
+    public void test_03_concurrentVisits() throws InterruptedException {
+        final int urls = 50_000;
+        final AtomicIntegerArray first = new AtomicIntegerArray(urls);
+        final AtomicIntegerArray minimal = new AtomicIntegerArray(urls);
+        for (int i = 0; i < urls; i++) {
+            minimal.set(i, UNVISITED);
+        }
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < urls; i++) {
+                    final int urlDepth = random.nextInt(50) + 1;
+                    minimal.accumulateAndGet(i, urlDepth, Math::min);
+                    if (visit(url(i % 7, i), urlDepth) == UNVISITED) {
+                        first.incrementAndGet(i);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < urls; i++) {
+            Assert.assertEquals("first visits of " + url(i % 7, i), 1, first.get(i));
+            Assert.assertEquals(minimal.get(i), depth(url(i % 7, i)));
+        }
+    }
+}
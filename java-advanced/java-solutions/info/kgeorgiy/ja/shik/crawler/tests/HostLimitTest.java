@@ -0,0 +1,368 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class HostLimitTest extends BaseTest {
+    private static final int HOSTS = 4;
+
+    /**
+     * Site, where root links to {@code pages} pages on each of {@code HOSTS} hosts.
+     */
+    private static Site star(final int pages) {
+        final Site site = new Site();
+        final List<String> links = new ArrayList<>();
+        for (int host = 0; host < HOSTS; host++) {
+            for (int page = 1; page <= pages; page++) {
+                links.add(url(host, page));
+                site.page(url(host, page));
+            }
+        }
+        return site.page(url(0, 0), links.toArray(new String[0]));
+    }
+
+    private static String host(final String url) {
+        return URI.create(url).getHost();
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts maximal number of simultaneous downloads of each host.
+     */
+    private static Map<String, AtomicInteger> trackConcurrency(final Site site) {
+        final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maximum = new ConcurrentHashMap<>();
+        site.onDownload(url -> {
+            final AtomicInteger current = running.computeIfAbsent(host(url), host -> new AtomicInteger());
+            maximum.computeIfAbsent(host(url), host -> new AtomicInteger())
+                    .accumulateAndGet(current.incrementAndGet(), Math::max);
+            sleep(5);
+            current.decrementAndGet();
+        });
+        return maximum;
+    }
+
+    /**
+     * Returns site hook, that counts maximal number of simultaneous calls in {@code maximum}.
+     */
+    private static Consumer<String> trackTotal(final AtomicInteger maximum, final long millis) {
+        final AtomicInteger running = new AtomicInteger();
+        return url -> {
+            maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(millis);
+            running.decrementAndGet();
+        };
+    }
+
+    private static void checkAll(final Result result, final int pages) {
+        Assert.assertEquals(HOSTS * pages + 1, new HashSet<>(result.getDownloaded()).size());
+        Assert.assertEquals(Map.of(), result.getErrors());
+    }
+
+    private void checkPerHost(final int perHost, final boolean threadPerTask) {
+        final Site site = star(20);
+        final Map<String, AtomicInteger> maximum = trackConcurrency(site);
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, perHost,
+                Double.POSITIVE_INFINITY, perHost, WebCrawler.DEFAULT_HOST_QUEUE_CAPACITY, threadPerTask)) {
+            checkAll(crawler.download(url(0, 0), 2), 20);
+        }
+        for (final Map.Entry<String, AtomicInteger> entry : maximum.entrySet()) {
+            Assert.assertTrue(entry.getKey() + " exceeds per host limit", entry.getValue().get() <= perHost);
+        }
+    }
+
+    @Test
+    public void test_01_perHost() {
+        checkPerHost(1, false);
+        checkPerHost(2, false);
+    }
+
+    @Test
+    public void test_02_perHostThreadPerTask() {
+        checkPerHost(1, true);
+        checkPerHost(2, true);
+    }
+
+    @Test
+    public void test_03_rate() {
+        final int pages = 6;
+        final double rate = 20;
+        final Site site = star(pages);
+        final Map<String, List<Long>> starts = new ConcurrentHashMap<>();
+        site.onDownload(url -> starts.computeIfAbsent(host(url), host -> Collections.synchronizedList(new ArrayList<>()))
+                .add(System.nanoTime()));
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 2,
+                rate, 1, WebCrawler.DEFAULT_HOST_QUEUE_CAPACITY, false)) {
+            checkAll(crawler.download(url(0, 0), 2), pages);
+        }
+        for (final Map.Entry<String, List<Long>> entry : starts.entrySet()) {
+            final List<Long> times = entry.getValue();
+            final double seconds = (times.get(times.size() - 1) - times.get(0)) / 1e9;
+            Assert.assertTrue(entry.getKey() + " exceeds rate: " + times.size() + " pages in " + seconds + " s",
+                    seconds >= (times.size() - 1) / rate * 0.9);
+        }
+    }
+
+    /**
+     * Reflective access to package-private {@code HostScheduler}.
+     */
+    private static class Scheduler implements AutoCloseable {
+        private final AutoCloseable scheduler;
+        private final Method submit;
+        private final Field hosts;
+
+        private Scheduler(final int threads, final int perHost, final double rate, final int burst,
+                          final int queueCapacity, final ExecutorService executor)
+                throws ReflectiveOperationException {
+            final Class<?> type = Class.forName("info.kgeorgiy.ja.shik.crawler.HostScheduler");
+            final Constructor<?> constructor = type.getDeclaredConstructor(
+                    int.class, int.class, double.class, int.class, int.class, ExecutorService.class);
+            constructor.setAccessible(true);
+            submit = type.getDeclaredMethod("submit", String.class, double.class, Runnable.class);
+            submit.setAccessible(true);
+            hosts = type.getDeclaredField("hosts");
+            hosts.setAccessible(true);
+            scheduler = (AutoCloseable) constructor.newInstance(
+                    threads, perHost, rate, burst, queueCapacity, executor);
+        }
+
+        private void submit(final String host, final double priority, final Runnable task)
+                throws ReflectiveOperationException {
+            submit.invoke(scheduler, host, priority, task);
+        }
+
+        /**
+         * Returns names of hosts, whose state is kept by scheduler. Should be called after {@link #close()}.
+         */
+        private Set<String> hosts() throws ReflectiveOperationException {
+            return ((Map<?, ?>) hosts.get(scheduler)).keySet().stream()
+                    .map(String.class::cast).collect(Collectors.toSet());
+        }
+
+        @Override
+        public void close() {
+            try {
+                scheduler.close();
+            } catch (final Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Submits tasks to scheduler and closes it at once.
+     */
+    private static int drain(final int tasks, final ExecutorService executor) throws ReflectiveOperationException {
+        final AtomicInteger done = new AtomicInteger();
+        try (final Scheduler scheduler = new Scheduler(4, 1, Double.POSITIVE_INFINITY, 1, tasks, executor)) {
+            for (int i = 0; i < tasks; i++) {
+                scheduler.submit(OTHER_HOST, 0.0, () -> {
+                    sleep(10);
+                    done.incrementAndGet();
+                });
+            }
+        }
+        return done.get();
+    }
+
+    @Test
+    public void test_04_drainOnClose() throws ReflectiveOperationException {
+        Assert.assertEquals(10, drain(10, null));
+        Assert.assertEquals(10, drain(10, Executors.newCachedThreadPool()));
+    }
+
+    @Test
+    public void test_05_dropIdleHosts() throws ReflectiveOperationException {
+        for (final ExecutorService executor : new ExecutorService[]{null, Executors.newCachedThreadPool()}) {
+            final Scheduler scheduler = new Scheduler(4, 2, Double.POSITIVE_INFINITY, 1, 2, executor);
+            try (scheduler) {
+                for (int i = 0; i < 500; i++) {
+                    for (int j = 0; j < 5; j++) {
+                        scheduler.submit("h" + i + ".test", 0.0, () -> {});
+                    }
+                }
+            }
+            Assert.assertEquals(Set.of(), scheduler.hosts());
+        }
+    }
+
+    @Test
+    public void test_06_sweepRateLimitedHosts() throws ReflectiveOperationException, InterruptedException {
+        final Scheduler scheduler = new Scheduler(4, 1, 1000, 1, 2, null);
+        final List<String> first = hosts(100);
+        try (scheduler) {
+            final CountDownLatch done = new CountDownLatch(first.size());
+            for (final String host : first) {
+                scheduler.submit(host, 0.0, done::countDown);
+            }
+            done.await();
+            // Buckets of idle hosts are refilled in a millisecond
+            Thread.sleep(20);
+            for (int i = 0; i < first.size(); i++) {
+                scheduler.submit("other" + i + ".test", 0.0, () -> {});
+            }
+        }
+        final Set<String> kept = scheduler.hosts();
+        kept.retainAll(first);
+        Assert.assertEquals(Set.of(), kept);
+    }
+
+    private static void checkTotal(final int downloaders, final int extractors, final boolean threadPerTask) {
+        final Site site = star(20);
+        final AtomicInteger downloads = new AtomicInteger();
+        final AtomicInteger extractions = new AtomicInteger();
+        site.onDownload(trackTotal(downloads, 5));
+        site.onExtract(trackTotal(extractions, 15));
+        try (final WebCrawler crawler = new WebCrawler(site, downloaders, extractors, HOSTS,
+                Double.POSITIVE_INFINITY, HOSTS, WebCrawler.DEFAULT_HOST_QUEUE_CAPACITY, threadPerTask)) {
+            checkAll(crawler.download(url(0, 0), 3), 20);
+        }
+        Assert.assertTrue("downloads exceed limit: " + downloads.get(), downloads.get() <= downloaders);
+        Assert.assertTrue("extractions exceed limit: " + extractions.get(), extractions.get() <= extractors);
+        Assert.assertTrue("no parallel downloads", downloads.get() > 1);
+        Assert.assertTrue("no parallel extractions", extractions.get() > 1);
+    }
+
+    @Test
+    public void test_07_totalLimits() {
+        checkTotal(3, 2, false);
+        checkTotal(5, 3, false);
+    }
+
+    @Test
+    public void test_08_totalLimitsThreadPerTask() {
+        checkTotal(3, 2, true);
+        checkTotal(5, 3, true);
+    }
+
+    /**
+     * Started task of {@link #checkOrder}.
+     */
+    private static class Start {
+        private final String host;
+        private final double priority;
+        private final int index;
+
+        private Start(final String host, final double priority, final int index) {
+            this.host = host;
+            this.priority = priority;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + priority + "#" + index;
+        }
+    }
+
+    /**
+     * Occupies all {@code threads} of scheduler by tasks, that wait for returned latch.
+     */
+    private static CountDownLatch block(final Scheduler scheduler, final int threads)
+            throws ReflectiveOperationException, InterruptedException {
+        final CountDownLatch started = new CountDownLatch(threads);
+        final CountDownLatch gate = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            scheduler.submit("gate" + i + ".test", 0.0, () -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        started.await();
+        return gate;
+    }
+
+    /**
+     * Queues {@code tasks} random tasks of {@code hosts} hosts, while scheduler is blocked,
+     * and returns tasks in order of start. Checks, that tasks of each host are started in order
+     * of decreasing priority, in order of submission among equal priorities, and at most {@code perHost} at once.
+     */
+    private static List<Start> checkOrder(final int threads, final int perHost, final int hosts, final int tasks,
+                                          final int priorities)
+            throws ReflectiveOperationException, InterruptedException {
+        final List<Start> starts = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> maximum = new ConcurrentHashMap<>();
+        final Random random = new Random(tasks);
+        try (final Scheduler scheduler = new Scheduler(threads, perHost, Double.POSITIVE_INFINITY, 1, tasks, null)) {
+            final CountDownLatch gate = block(scheduler, threads);
+            for (int i = 0; i < tasks; i++) {
+                final Start start = new Start("h" + random.nextInt(hosts) + ".test", random.nextInt(priorities), i);
+                scheduler.submit(start.host, start.priority, () -> {
+                    starts.add(start);
+                    final AtomicInteger current = running.computeIfAbsent(start.host, host -> new AtomicInteger());
+                    maximum.computeIfAbsent(start.host, host -> new AtomicInteger())
+                            .accumulateAndGet(current.incrementAndGet(), Math::max);
+                    if (threads > 1) {
+                        sleep(1);
+                    }
+                    current.decrementAndGet();
+                });
+            }
+            gate.countDown();
+        }
+        Assert.assertEquals(tasks, starts.size());
+        final Map<String, Start> previous = new HashMap<>();
+        for (final Start start : starts) {
+            final Start last = previous.put(start.host, start);
+            if (last != null) {
+                Assert.assertTrue(last + " before " + start, last.priority > start.priority
+                        || last.priority == start.priority && last.index < start.index);
+            }
+        }
+        for (final Map.Entry<String, AtomicInteger> entry : maximum.entrySet()) {
+            Assert.assertTrue(entry.getKey() + " exceeds per host limit", entry.getValue().get() <= perHost);
+        }
+        return starts;
+    }
+
+    @Test
+    public void test_09_priorityOrder() throws ReflectiveOperationException, InterruptedException {
+        for (final int hosts : new int[]{1, 3, 10}) {
+            final List<Start> starts = checkOrder(1, 1, hosts, 300, 5);
+            for (int i = 1; i < starts.size(); i++) {
+                Assert.assertTrue(starts.get(i - 1) + " before " + starts.get(i),
+                        starts.get(i - 1).priority >= starts.get(i).priority);
+            }
+        }
+    }
+
+    @Test
+    public void test_10_priorityPerHost() throws ReflectiveOperationException, InterruptedException {
+        for (final int perHost : new int[]{1, 2}) {
+            final List<Start> starts = checkOrder(4, perHost, 3, 300, 5);
+            // Hosts limited by perHost don't hold other hosts back, so priorities are not globally ordered
+            boolean inverted = false;
+            for (int i = 1; i < starts.size(); i++) {
+                inverted |= starts.get(i - 1).priority < starts.get(i).priority;
+            }
+            Assert.assertTrue("tasks of lower priority are not started by free threads", inverted);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ListenerTest extends BaseTest {
+    private static final int PAGES = 1000;
+    private static final int HOSTS = 4;
+    private static final int DEGREE = 5;
+    private static final int DEPTH = 6;
+    private static final List<String> PERMITTED = hosts(HOSTS);
+
+    private static Result plain(final long seed) {
+        try (final WebCrawler crawler = new WebCrawler(Site.random(seed, PAGES, HOSTS, DEGREE), 8, 4, 3)) {
+            return crawler.download(url(0, 0), DEPTH, PERMITTED);
+        }
+    }
+
+    /**
+     * Listener, that checks, that pages of completed depths are reported.
+     */
+    private static class DepthChecker extends Collector {
+        private final Map<String, Integer> depths;
+        private final Set<String> reported = ConcurrentHashMap.newKeySet();
+        private final List<Integer> completed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> missing = Collections.synchronizedList(new ArrayList<>());
+
+        private DepthChecker(final Map<String, Integer> depths) {
+            this.depths = depths;
+        }
+
+        @Override
+        public void downloaded(final String url, final Document document, final int depth) {
+            super.downloaded(url, document, depth);
+            reported.add(url);
+        }
+
+        @Override
+        public void failed(final String url, final IOException error) {
+            super.failed(url, error);
+            reported.add(url);
+        }
+
+        @Override
+        public void depthCompleted(final int depth) {
+            completed.add(depth);
+            depths.forEach((url, urlDepth) -> {
+                if (urlDepth <= depth && Site.isPermitted(url, PERMITTED) && !reported.contains(url)) {
+                    missing.add(url + " at depth " + urlDepth + " is not reported before depth " + depth);
+                }
+            });
+        }
+
+        private void check(final Result expected) {
+            checkResult(expected, toResult());
+            Assert.assertEquals(List.of(), missing);
+            Assert.assertEquals(IntStream.rangeClosed(1, Collections.max(depths.values())).boxed()
+                    .collect(Collectors.toList()), completed);
+        }
+    }
+
+    private static void checkDepths(final Site site, final int depth, final boolean threadPerTask) {
+        final DepthChecker checker = new DepthChecker(site.depths(url(0, 0), depth, PERMITTED));
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3, Double.POSITIVE_INFINITY, 3,
+                WebCrawler.DEFAULT_HOST_QUEUE_CAPACITY, threadPerTask)) {
+            crawler.crawl(url(0, 0), depth, PERMITTED, checker);
+        }
+        checker.check(site.reference(url(0, 0), depth, PERMITTED));
+    }
+
+    @Test
+    public void test_01_throwingListener() {
+        final AtomicInteger thrown = new AtomicInteger();
+        final Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> thrown.incrementAndGet());
+        try {
+            for (final long seed : new long[]{1, 2, 3}) {
+                final Site site = Site.random(seed, PAGES, HOSTS, DEGREE);
+                final Collector collector = new Collector() {
+                    @Override
+                    public void downloaded(final String url, final Document document, final int depth) {
+                        super.downloaded(url, document, depth);
+                        throw new IllegalStateException("Listener failed on " + url);
+                    }
+
+                    @Override
+                    public void failed(final String url, final IOException error) {
+                        super.failed(url, error);
+                        throw new IllegalStateException("Listener failed on " + url);
+                    }
+                };
+                thrown.set(0);
+                try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3)) {
+                    crawler.crawl(url(0, 0), DEPTH, PERMITTED, collector);
+                }
+                final Result result = collector.toResult();
+                checkResult(plain(seed), result);
+                Assert.assertEquals(result.getDownloaded().size() + result.getErrors().size(), thrown.get());
+                Assert.assertEquals(1, collector.completions());
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void test_02_depthCompleted() {
+        for (final long seed : new long[]{1, 2, 3}) {
+            for (final int depth : new int[]{1, 2, DEPTH}) {
+                checkDepths(Site.random(seed, PAGES, HOSTS, DEGREE), depth, false);
+                checkDepths(Site.random(seed, PAGES, HOSTS, DEGREE), depth, true);
+            }
+        }
+    }
+
+    @Test
+    public void test_03_deepChain() {
+        final int pages = 1500;
+        final Site site = new Site();
+        for (int i = 0; i < pages; i++) {
+            site.page(url(i % HOSTS, i), url((i + 1) % HOSTS, i + 1));
+        }
+        checkDepths(site, pages - 10, false);
+        checkDepths(site, 2 * pages, false);
+    }
+}
@@ -0,0 +1,177 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.CachedDownloader;
+import info.kgeorgiy.ja.shik.crawler.LruPageCache;
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PageCacheTest extends BaseTest {
+    /**
+     * Downloader of versioned pages, that counts extractions.
+     */
+    private static class Versions implements Downloader {
+        private final Map<String, Long> versions = new ConcurrentHashMap<>();
+        private final AtomicInteger extractions = new AtomicInteger();
+
+        private void set(final String url, final long version) {
+            versions.put(url, version);
+        }
+
+        private static List<String> links(final String url, final long version) {
+            return List.of(url + "/v" + version + "/a", url + "/v" + version + "/b");
+        }
+
+        @Override
+        public Document download(final String url) {
+            final long version = versions.get(url);
+            return new Document() {
+                @Override
+                public List<String> extractLinks() {
+                    extractions.incrementAndGet();
+                    return links(url, version);
+                }
+
+                @Override
+                public String toString() {
+                    return Long.toString(version);
+                }
+            };
+        }
+    }
+
+    private static final CachedDownloader.Hasher HASHER = (url, document) -> Long.parseLong(document.toString());
+
+    private static List<String> extract(final Downloader downloader, final String url) throws IOException {
+        return downloader.download(url).extractLinks();
+    }
+
+    @Test
+    public void test_01_unchangedPage() throws IOException {
+        final Versions versions = new Versions();
+        final Downloader downloader = new CachedDownloader(versions, HASHER, new LruPageCache(100));
+        final String url = url(0, 0);
+        versions.set(url, 1);
+        Assert.assertEquals(Versions.links(url, 1), extract(downloader, url));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(Versions.links(url, 1), extract(downloader, url));
+        }
+        Assert.assertEquals(1, versions.extractions.get());
+    }
+
+    @Test
+    public void test_02_changedPage() throws IOException {
+        final Versions versions = new Versions();
+        final Downloader downloader = new CachedDownloader(versions, HASHER, new LruPageCache(100));
+        final String url = url(0, 0);
+        for (int version = 1; version <= 5; version++) {
+            versions.set(url, version);
+            Assert.assertEquals(Versions.links(url, version), extract(downloader, url));
+            Assert.assertEquals(Versions.links(url, version), extract(downloader, url));
+            Assert.assertEquals(version, versions.extractions.get());
+        }
+        versions.set(url, 1);
+        Assert.assertEquals(Versions.links(url, 1), extract(downloader, url));
+        Assert.assertEquals(6, versions.extractions.get());
+    }
+
+    private static long size(final LruPageCache cache) throws ReflectiveOperationException {
+        final Field size = LruPageCache.class.getDeclaredField("size");
+        size.setAccessible(true);
+        return size.getLong(cache);
+    }
+
+    /**
+     * Checks, that counted size of cache is the size of cached pages and doesn't exceed capacity.
+     */
+    private static void checkSize(final LruPageCache cache, final long capacity, final Map<String, List<String>> pages)
+            throws ReflectiveOperationException {
+        long expected = 0;
+        int cached = 0;
+        for (final Map.Entry<String, List<String>> page : pages.entrySet()) {
+            if (cache.get(page.getKey(), page.getValue().size()) != null) {
+                expected += page.getValue().size() + 1;
+                cached++;
+            }
+        }
+        Assert.assertEquals(expected, size(cache));
+        Assert.assertEquals(cached, cache.pages());
+        Assert.assertTrue("size " + expected + " exceeds capacity " + capacity, expected <= capacity);
+    }
+
+    private static List<String> links(final int count) {
+        final List<String> links = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            links.add(url(1, i));
+        }
+        return links;
+    }
+
+    @Test
+    public void test_03_eviction() throws ReflectiveOperationException {
+        final long capacity = 50;
+        final LruPageCache cache = new LruPageCache(capacity);
+        final Random random = new Random(3);
+        final Map<String, List<String>> pages = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            final String url = url(0, random.nextInt(30));
+            // Hash of page is its number of links
+            final List<String> links = links(random.nextInt(20));
+            pages.put(url, links);
+            cache.put(url, links.size(), links);
+            Assert.assertEquals(links, cache.get(url, links.size()));
+            checkSize(cache, capacity, pages);
+        }
+    }
+
+    @Test
+    public void test_04_largePage() throws ReflectiveOperationException {
+        final long capacity = 10;
+        final LruPageCache cache = new LruPageCache(capacity);
+        final Map<String, List<String>> pages = new HashMap<>();
+        pages.put(url(0, 0), links(3));
+        pages.put(url(0, 1), links(4));
+        pages.forEach((url, links) -> cache.put(url, links.size(), links));
+        checkSize(cache, capacity, pages);
+        Assert.assertEquals(2, cache.pages());
+
+        cache.put(url(0, 2), 20, links(20));
+        Assert.assertNull(cache.get(url(0, 2), 20));
+        checkSize(cache, capacity, pages);
+        Assert.assertEquals(2, cache.pages());
+
+        // Previous version of a page, that became too large, is dropped
+        pages.put(url(0, 0), links(10));
+        cache.put(url(0, 0), 10, links(10));
+        Assert.assertNull(cache.get(url(0, 0), 3));
+        checkSize(cache, capacity, pages);
+        Assert.assertEquals(1, cache.pages());
+    }
+
+    @Test
+    public void test_05_recrawl() {
+        final Site site = Site.random(1, 1000, 4, 5);
+        final AtomicInteger extractions = new AtomicInteger();
+        site.onExtract(url -> extractions.incrementAndGet());
+        final LruPageCache cache = new LruPageCache(1 << 20);
+        final Downloader downloader = new CachedDownloader(site, (url, document) -> 0, cache);
+        final List<String> hosts = hosts(4);
+        final Result expected = site.reference(url(0, 0), 6, hosts);
+        try (final WebCrawler crawler = new WebCrawler(downloader, 8, 4, 3)) {
+            checkResult(expected, crawler.download(url(0, 0), 6, hosts));
+            final int extracted = extractions.get();
+            Assert.assertTrue("nothing extracted", extracted > 0);
+            checkResult(expected, crawler.download(url(0, 0), 6, hosts));
+            Assert.assertEquals("extracted again", extracted, extractions.get());
+        }
+    }
+}
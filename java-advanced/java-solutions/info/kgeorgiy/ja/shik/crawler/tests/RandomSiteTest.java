@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.shik.crawler.tests;
+
+import info.kgeorgiy.ja.shik.crawler.WebCrawler;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RandomSiteTest extends BaseTest {
+    private static final int PAGES = 1000;
+    private static final int HOSTS = 4;
+    private static final int DEGREE = 5;
+    private static final String SLOW_HOST = "h1.test";
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Crawls random site, where pages of one host are downloaded slowly, so pages are often found
+     * at larger depth first, and compares result with breadth-first crawl.
+     */
+    private static void check(final long seed, final int depth, final List<String> hosts,
+                              final boolean threadPerTask) {
+        final Site site = Site.random(seed, PAGES, HOSTS, DEGREE);
+        site.onDownload(url -> {
+            if (SLOW_HOST.equals(URI.create(url).getHost())) {
+                sleep(2);
+            }
+        });
+        final Result result;
+        try (final WebCrawler crawler = new WebCrawler(site, 8, 4, 3, Double.POSITIVE_INFINITY, 3,
+                WebCrawler.DEFAULT_HOST_QUEUE_CAPACITY, threadPerTask)) {
+            result = hosts == null ? crawler.download(url(0, 0), depth) : crawler.download(url(0, 0), depth, hosts);
+        }
+        final String context = "seed " + seed + ", depth " + depth;
+        final Result expected = site.reference(url(0, 0), depth, hosts == null ? allHosts() : hosts);
+        checkResult(expected, result);
+        for (final String url : expected.getDownloaded()) {
+            Assert.assertEquals(context + ", downloads of " + url, 1, site.downloads(url));
+        }
+        Assert.assertEquals(context, expected.getDownloaded().size() + expected.getErrors().size(), site.total());
+    }
+
+    private static List<String> allHosts() {
+        final List<String> hosts = new ArrayList<>(hosts(HOSTS));
+        hosts.add(OTHER_HOST);
+        return hosts;
+    }
+
+    @Test
+    public void test_01_slowHost() {
+        for (final long seed : new long[]{1, 2, 3, 4}) {
+            for (final int depth : new int[]{2, 4, 8}) {
+                check(seed, depth, null, false);
+                check(seed, depth, hosts(HOSTS), false);
+            }
+        }
+    }
+
+    @Test
+    public void test_02_slowHostThreadPerTask() {
+        for (final long seed : new long[]{5, 6}) {
+            for (final int depth : new int[]{2, 4, 8}) {
+                check(seed, depth, null, true);
+                check(seed, depth, hosts(HOSTS), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * {@link StudentDB} over a fixed roster, that is stored by columns instead of {@link Student} objects.
+ * First and last names are dictionary-encoded: each distinct name is stored once and students refer to it
+ * by its rank in the sorted dictionary, so names are compared by their codes.
+ * Groups are stored by ordinals, orders by id, by name and by group are precomputed as arrays of positions.
+ * <p>
+ * Queries over {@link #students()} scan primitive columns and create {@link Student} objects only for results.
+ * Queries over any other collection are delegated to {@link StudentDB}.
+ * <p>
+ * Database can be {@link #save(Path) saved} to a binary snapshot together with precomputed orders
+ * and {@link #load(Path) loaded} back without re-sorting.
+ */
+public class ColumnarStudentDB extends StudentDB {
+    private static final GroupName[] GROUPS = GroupName.values();
+    private static final int MAGIC = 0x53545544;
+
+    private final String[] firstNameDictionary;
+    private final String[] lastNameDictionary;
+    private final int[] ids;
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final byte[] groups;
+
+    private final int[] byId;
+    private final int[] byName;
+    private final int[] byGroupByName;
+    private final int[] byGroupById;
+    private final int[] groupStarts;
+
+    private final List<Student> students = new StudentView();
+
+    /**
+     * Encodes given roster.
+     *
+     * @param roster stored students
+     */
+    public ColumnarStudentDB(final Collection<Student> roster) {
+        final int n = roster.size();
+        ids = new int[n];
+        firstNames = new int[n];
+        lastNames = new int[n];
+        groups = new byte[n];
+        final Map<String, Integer> firstCodes = new HashMap<>();
+        final Map<String, Integer> lastCodes = new HashMap<>();
+        int i = 0;
+        for (final Student student : roster) {
+            ids[i] = student.getId();
+            firstNames[i] = firstCodes.computeIfAbsent(student.getFirstName(), name -> firstCodes.size());
+            lastNames[i] = lastCodes.computeIfAbsent(student.getLastName(), name -> lastCodes.size());
+            groups[i] = (byte) student.getGroup().ordinal();
+            i++;
+        }
+        firstNameDictionary = encode(firstCodes, firstNames);
+        lastNameDictionary = encode(lastCodes, lastNames);
+
+        byId = IndexSort.sorted(n, this::compareById);
+        byName = IndexSort.sorted(n, this::compareByName);
+        byGroupByName = IndexSort.sorted(n, (a, b) -> compareByGroup(a, b, compareByName(a, b)));
+        byGroupById = IndexSort.sorted(n, (a, b) -> compareByGroup(a, b, compareById(a, b)));
+        groupStarts = groupStarts(groups);
+    }
+
+    /**
+     * Restores database from snapshot content read by {@link #load(Path)}.
+     */
+    private ColumnarStudentDB(final ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a student snapshot");
+        }
+        if (buffer.getInt() != GROUPS.length) {
+            throw new IOException("Snapshot was written for another set of groups");
+        }
+        final int n = buffer.getInt();
+        if (n < 0 || (long) n * Integer.BYTES > buffer.remaining()) {
+            throw new IOException("Invalid number of students " + n);
+        }
+        firstNameDictionary = readDictionary(buffer);
+        lastNameDictionary = readDictionary(buffer);
+        ids = readInts(buffer, n);
+        firstNames = readCodes(buffer, n, firstNameDictionary.length);
+        lastNames = readCodes(buffer, n, lastNameDictionary.length);
+        groups = new byte[n];
+        buffer.get(groups);
+        for (final byte group : groups) {
+            if (group < 0 || group >= GROUPS.length) {
+                throw new IOException("Invalid group ordinal " + group);
+            }
+        }
+        byId = readCodes(buffer, n, n);
+        byName = readCodes(buffer, n, n);
+        byGroupByName = readCodes(buffer, n, n);
+        byGroupById = readCodes(buffer, n, n);
+        groupStarts = groupStarts(groups);
+    }
+
+    private static int[] groupStarts(final byte[] groups) {
+        final int[] starts = new int[GROUPS.length + 1];
+        for (final byte group : groups) {
+            starts[group + 1]++;
+        }
+        for (int g = 0; g < GROUPS.length; g++) {
+            starts[g + 1] += starts[g];
+        }
+        return starts;
+    }
+
+    /**
+     * Loads database from snapshot written by {@link #save(Path)}.
+     * Snapshot is memory-mapped and its columns and orders are copied in bulk,
+     * so nothing is parsed or sorted except for the name dictionaries.
+     *
+     * @param file snapshot file
+     * @return loaded database
+     * @throws IOException if snapshot cannot be read or is malformed
+     */
+    public static ColumnarStudentDB load(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Student snapshot is too large: " + file);
+            }
+            return new ColumnarStudentDB(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated student snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes snapshot of stored students and precomputed orders to {@code file}.
+     * File is replaced atomically, so readers never see partially written snapshot.
+     *
+     * @param file snapshot file
+     * @throws IOException if snapshot cannot be written
+     */
+    public void save(final Path file) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(GROUPS.length);
+                out.writeInt(ids.length);
+                writeDictionary(out, firstNameDictionary);
+                writeDictionary(out, lastNameDictionary);
+                for (final int[] column : List.of(ids, firstNames, lastNames)) {
+                    writeInts(out, column);
+                }
+                out.write(groups);
+                for (final int[] order : List.of(byId, byName, byGroupByName, byGroupById)) {
+                    writeInts(out, order);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeDictionary(final DataOutputStream out, final String[] dictionary) throws IOException {
+        out.writeInt(dictionary.length);
+        for (final String name : dictionary) {
+            final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeInts(final DataOutputStream out, final int[] column) throws IOException {
+        for (final int value : column) {
+            out.writeInt(value);
+        }
+    }
+
+    private static String[] readDictionary(final ByteBuffer buffer) throws IOException {
+        final int size = buffer.getInt();
+        if (size < 0) {
+            throw new IOException("Invalid dictionary size " + size);
+        }
+        final String[] dictionary = new String[size];
+        for (int i = 0; i < size; i++) {
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Invalid name length " + length);
+            }
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+
+    private static int[] readInts(final ByteBuffer buffer, final int n) {
+        final int[] column = new int[n];
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return column;
+    }
+
+    private static int[] readCodes(final ByteBuffer buffer, final int n, final int bound) throws IOException {
+        final int[] column = readInts(buffer, n);
+        for (final int code : column) {
+            if (code < 0 || code >= bound) {
+                throw new IOException("Invalid code " + code);
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Replaces codes in order of appearance with ranks of names in sorted dictionary.
+     */
+    private static String[] encode(final Map<String, Integer> codes, final int[] column) {
+        final String[] dictionary = codes.keySet().toArray(new String[0]);
+        Arrays.sort(dictionary);
+        final int[] ranks = new int[dictionary.length];
+        for (int rank = 0; rank < dictionary.length; rank++) {
+            ranks[codes.get(dictionary[rank])] = rank;
+        }
+        for (int i = 0; i < column.length; i++) {
+            column[i] = ranks[column[i]];
+        }
+        return dictionary;
+    }
+
+    private int compareById(final int a, final int b) {
+        return Integer.compare(ids[a], ids[b]);
+    }
+
+    private int compareByName(final int a, final int b) {
+        if (lastNames[a] != lastNames[b]) {
+            return Integer.compare(lastNames[b], lastNames[a]);
+        }
+        if (firstNames[a] != firstNames[b]) {
+            return Integer.compare(firstNames[b], firstNames[a]);
+        }
+        return compareById(a, b);
+    }
+
+    private int compareByGroup(final int a, final int b, final int then) {
+        return groups[a] != groups[b] ? Integer.compare(groups[a], groups[b]) : then;
+    }
+
+    private Student student(final int i) {
+        return new Student(ids[i], firstNameDictionary[firstNames[i]], lastNameDictionary[lastNames[i]], GROUPS[groups[i]]);
+    }
+
+    private List<Student> students(final int[] order, final int from, final int to) {
+        final List<Student> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(student(order[i]));
+        }
+        return result;
+    }
+
+    private List<Student> students(final int[] order, final int[] column, final int code) {
+        final List<Student> result = new ArrayList<>();
+        for (final int i : order) {
+            if (column[i] == code) {
+                result.add(student(i));
+            }
+        }
+        return result;
+    }
+
+    private List<Group> getGroups(final int[] order) {
+        final List<Group> result = new ArrayList<>();
+        for (int g = 0; g < GROUPS.length; g++) {
+            if (groupStarts[g] < groupStarts[g + 1]) {
+                result.add(new Group(GROUPS[g], students(order, groupStarts[g], groupStarts[g + 1])));
+            }
+        }
+        return result;
+    }
+
+    private List<String> names(final String[] dictionary, final int[] column) {
+        final List<String> result = new ArrayList<>(column.length);
+        for (final int code : column) {
+            result.add(dictionary[code]);
+        }
+        return result;
+    }
+
+    private String fullName(final int i) {
+        return firstNameDictionary[firstNames[i]] + " " + lastNameDictionary[lastNames[i]];
+    }
+
+    /**
+     * Returns code of {@code name} in sorted {@code dictionary}. Roster names are never {@code null},
+     * so {@code null} is never found.
+     */
+    private static int find(final String[] dictionary, final String name) {
+        return name == null ? -1 : Arrays.binarySearch(dictionary, name);
+    }
+
+    private boolean isRoster(final Collection<Student> students) {
+        return students == this.students;
+    }
+
+    /**
+     * Returns view of stored students in roster order. Students are created on access.
+     * Passing this view to query methods makes them use columns.
+     *
+     * @return unmodifiable random-access view of students
+     */
+    public List<Student> students() {
+        return students;
+    }
+
+    @Override
+    protected List<Student> snapshot(final Collection<Student> students) {
+        return isRoster(students) ? this.students : super.snapshot(students);
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return isRoster(students) ? getGroups(byGroupByName) : super.getGroupsByName(students);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return isRoster(students) ? getGroups(byGroupById) : super.getGroupsById(students);
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        if (!isRoster(students)) {
+            return super.getLargestGroup(students);
+        }
+        int largest = -1;
+        for (int g = 0; g < GROUPS.length; g++) {
+            final int size = groupStarts[g + 1] - groupStarts[g];
+            if (size > 0 && (largest < 0 || size >= groupStarts[largest + 1] - groupStarts[largest])) {
+                largest = g;
+            }
+        }
+        return largest < 0 ? null : GROUPS[largest];
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        if (!isRoster(students)) {
+            return super.getLargestGroupFirstName(students);
+        }
+        final BitSet seen = new BitSet(firstNameDictionary.length);
+        int largest = -1;
+        int largestSize = 0;
+        for (int g = 0; g < GROUPS.length; g++) {
+            seen.clear();
+            for (int i = groupStarts[g]; i < groupStarts[g + 1]; i++) {
+                seen.set(firstNames[byGroupById[i]]);
+            }
+            final int size = seen.cardinality();
+            if (size > largestSize) {
+                largest = g;
+                largestSize = size;
+            }
+        }
+        return largest < 0 ? null : GROUPS[largest];
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        if (!isRoster(students)) {
+            return super.getMostPopularName(students);
+        }
+        final int[] groupCounts = new int[firstNameDictionary.length];
+        final int[] lastGroup = new int[firstNameDictionary.length];
+        for (int g = 0; g < GROUPS.length; g++) {
+            for (int i = groupStarts[g]; i < groupStarts[g + 1]; i++) {
+                final int name = firstNames[byGroupById[i]];
+                if (lastGroup[name] != g + 1) {
+                    lastGroup[name] = g + 1;
+                    groupCounts[name]++;
+                }
+            }
+        }
+        int popular = -1;
+        for (int name = 0; name < groupCounts.length; name++) {
+            if (popular < 0 || groupCounts[name] >= groupCounts[popular]) {
+                popular = name;
+            }
+        }
+        return popular < 0 ? DEFAULT_VALUE : firstNameDictionary[popular];
+    }
+
+    @Override
+    public List<String> getFirstNames(final List<Student> students) {
+        return isRoster(students) ? names(firstNameDictionary, firstNames) : super.getFirstNames(students);
+    }
+
+    @Override
+    public List<String> getLastNames(final List<Student> students) {
+        return isRoster(students) ? names(lastNameDictionary, lastNames) : super.getLastNames(students);
+    }
+
+    @Override
+    public List<GroupName> getGroups(final List<Student> students) {
+        if (!isRoster(students)) {
+            return super.getGroups(students);
+        }
+        final List<GroupName> result = new ArrayList<>(groups.length);
+        for (final byte group : groups) {
+            result.add(GROUPS[group]);
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> getFullNames(final List<Student> students) {
+        if (!isRoster(students)) {
+            return super.getFullNames(students);
+        }
+        final List<String> result = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            result.add(fullName(i));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(final List<Student> students) {
+        return isRoster(students) ? new TreeSet<>(Arrays.asList(firstNameDictionary)) : super.getDistinctFirstNames(students);
+    }
+
+    @Override
+    public String getMaxStudentFirstName(final List<Student> students) {
+        if (!isRoster(students)) {
+            return super.getMaxStudentFirstName(students);
+        }
+        int max = -1;
+        for (int i = 0; i < ids.length; i++) {
+            if (max < 0 || ids[i] > ids[max]) {
+                max = i;
+            }
+        }
+        return max < 0 ? DEFAULT_VALUE : firstNameDictionary[firstNames[max]];
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return isRoster(students) ? students(byId, 0, byId.length) : super.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return isRoster(students) ? students(byName, 0, byName.length) : super.sortStudentsByName(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        if (!isRoster(students)) {
+            return super.findStudentsByFirstName(students, name);
+        }
+        final int code = find(firstNameDictionary, name);
+        return code < 0 ? new ArrayList<>() : students(byName, firstNames, code);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        if (!isRoster(students)) {
+            return super.findStudentsByLastName(students, name);
+        }
+        final int code = find(lastNameDictionary, name);
+        return code < 0 ? new ArrayList<>() : students(byName, lastNames, code);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        if (!isRoster(students)) {
+            return super.findStudentsByGroup(students, group);
+        }
+        return group == null
+                ? new ArrayList<>()
+                : students(byGroupByName, groupStarts[group.ordinal()], groupStarts[group.ordinal() + 1]);
+    }
+
+    /**
+     * Students of group are sorted by descending first name within last name,
+     * so the last first name put for each last name is the minimal one.
+     */
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        if (!isRoster(students)) {
+            return super.findStudentNamesByGroup(students, group);
+        }
+        final Map<String, String> result = new HashMap<>();
+        if (group == null) {
+            return result;
+        }
+        for (int i = groupStarts[group.ordinal()]; i < groupStarts[group.ordinal() + 1]; i++) {
+            final int student = byGroupByName[i];
+            result.put(lastNameDictionary[lastNames[student]], firstNameDictionary[firstNames[student]]);
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> getFirstNames(final Collection<Student> students, final int[] indices) {
+        return isRoster(students) ? byIndices(indices, i -> firstNameDictionary[firstNames[i]]) : super.getFirstNames(students, indices);
+    }
+
+    @Override
+    public List<String> getLastNames(final Collection<Student> students, final int[] indices) {
+        return isRoster(students) ? byIndices(indices, i -> lastNameDictionary[lastNames[i]]) : super.getLastNames(students, indices);
+    }
+
+    @Override
+    public List<GroupName> getGroups(final Collection<Student> students, final int[] indices) {
+        return isRoster(students) ? byIndices(indices, i -> GROUPS[groups[i]]) : super.getGroups(students, indices);
+    }
+
+    @Override
+    public List<String> getFullNames(final Collection<Student> students, final int[] indices) {
+        return isRoster(students) ? byIndices(indices, this::fullName) : super.getFullNames(students, indices);
+    }
+
+    private static <T> List<T> byIndices(final int[] indices, final IntFunction<T> getter) {
+        final List<T> result = new ArrayList<>(indices.length);
+        for (final int i : indices) {
+            result.add(getter.apply(i));
+        }
+        return result;
+    }
+
+    private class StudentView extends AbstractList<Student> implements RandomAccess {
+        @Override
+        public Student get(final int index) {
+            Objects.checkIndex(index, ids.length);
+            return student(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.shik.student;
+
+/**
+ * Stable merge sort of {@code int} indices by primitive comparator, that avoids boxing of indices.
+ */
+final class IndexSort {
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Comparator of two indices.
+     */
+    @FunctionalInterface
+    interface IndexComparator {
+        /**
+         * Compares elements with given indices.
+         *
+         * @param i index of first element
+         * @param j index of second element
+         * @return negative, zero or positive number as for {@link java.util.Comparator#compare(Object, Object)}
+         */
+        int compare(int i, int j);
+    }
+
+    /**
+     * Returns {@code 0, 1, ..., n - 1} stably sorted by {@code comparator}.
+     *
+     * @param n          number of indices
+     * @param comparator order of indices
+     * @return sorted indices
+     */
+    static int[] sorted(final int n, final IndexComparator comparator) {
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        sort(indices, comparator);
+        return indices;
+    }
+
+    /**
+     * Stably sorts {@code indices} by {@code comparator}.
+     *
+     * @param indices    sorted indices
+     * @param comparator order of indices
+     */
+    static void sort(final int[] indices, final IndexComparator comparator) {
+        sort(indices, indices.clone(), 0, indices.length, comparator);
+    }
+
+    private static void sort(final int[] a, final int[] buffer, final int from, final int to,
+                             final IndexComparator comparator) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                final int value = a[i];
+                int j = i;
+                for (; j > from && comparator.compare(a[j - 1], value) > 0; j--) {
+                    a[j] = a[j - 1];
+                }
+                a[j] = value;
+            }
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        sort(buffer, a, from, middle, comparator);
+        sort(buffer, a, middle, to, comparator);
+        if (comparator.compare(buffer[middle - 1], buffer[middle]) <= 0) {
+            System.arraycopy(buffer, from, a, from, to - from);
+            return;
+        }
+        for (int i = from, l = from, r = middle; i < to; i++) {
+            a[i] = r >= to || l < middle && comparator.compare(buffer[l], buffer[r]) <= 0 ? buffer[l++] : buffer[r++];
+        }
+    }
+}
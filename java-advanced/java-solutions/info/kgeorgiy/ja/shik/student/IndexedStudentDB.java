@@ -0,0 +1,223 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link StudentDB} over a fixed roster with indexes, that are built once in constructor.
+ * Queries over the indexed roster itself are answered from hash indexes and presorted lists
+ * in {@code O(k)}, where {@code k} is the size of the result. Queries over any other collection
+ * are delegated to {@link StudentDB}.
+ * Indexed roster shouldn't be modified after construction. As in {@link StudentDB}, returned lists
+ * and groups are fresh mutable copies, so callers may modify them without affecting the indexes.
+ */
+public class IndexedStudentDB extends StudentDB {
+    private final Collection<Student> roster;
+    private final List<Student> ordered;
+    private final List<Student> byId;
+    private final List<Student> byName;
+    private final Map<String, List<Student>> byFirstName;
+    private final Map<String, List<Student>> byLastName;
+    private final Map<GroupName, List<Student>> byGroupByName;
+    private final Map<GroupName, List<Student>> byGroupById;
+    private final List<Group> groupsByName;
+    private final List<Group> groupsById;
+    private final GroupName largestGroup;
+    private final GroupName largestGroupFirstName;
+    private final String mostPopularName;
+
+    /**
+     * Builds indexes over given roster.
+     *
+     * @param roster indexed students
+     */
+    public IndexedStudentDB(final Collection<Student> roster) {
+        this.roster = roster;
+        ordered = List.copyOf(roster);
+        byId = sorted(roster, Comparator.naturalOrder());
+        byName = sorted(roster, STUDENT_COMPARATOR);
+        byFirstName = index(byName, Student::getFirstName);
+        byLastName = index(byName, Student::getLastName);
+        byGroupByName = index(byName, Student::getGroup);
+        byGroupById = index(byId, Student::getGroup);
+        groupsByName = groups(byGroupByName);
+        groupsById = groups(byGroupById);
+        largestGroup = super.getLargestGroup(roster);
+        largestGroupFirstName = super.getLargestGroupFirstName(roster);
+        mostPopularName = super.getMostPopularName(roster);
+    }
+
+    private static List<Student> sorted(final Collection<Student> students, final Comparator<Student> comparator) {
+        final List<Student> list = new ArrayList<>(students);
+        list.sort(comparator);
+        return Collections.unmodifiableList(list);
+    }
+
+    private static <K> Map<K, List<Student>> index(final List<Student> sorted, final Function<Student, K> key) {
+        final Map<K, List<Student>> index = new HashMap<>();
+        for (final Student student : sorted) {
+            index.computeIfAbsent(key.apply(student), k -> new ArrayList<>()).add(student);
+        }
+        index.replaceAll((k, list) -> Collections.unmodifiableList(list));
+        return index;
+    }
+
+    private static List<Group> groups(final Map<GroupName, List<Student>> index) {
+        return index.entrySet().stream()
+                .map(entry -> new Group(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(Group::getName))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private boolean isRoster(final Collection<Student> students) {
+        return students == roster;
+    }
+
+    private static <K> List<Student> find(final Map<K, List<Student>> index, final K key) {
+        return new ArrayList<>(index.getOrDefault(key, List.of()));
+    }
+
+    private static List<Group> copy(final List<Group> groups) {
+        final List<Group> copy = new ArrayList<>(groups.size());
+        for (final Group group : groups) {
+            copy.add(new Group(group.getName(), new ArrayList<>(group.getStudents())));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns indexed roster sorted by id.
+     *
+     * @return new sorted list
+     */
+    public List<Student> sortStudentsById() {
+        return new ArrayList<>(byId);
+    }
+
+    /**
+     * Returns indexed roster sorted by name.
+     *
+     * @return new sorted list
+     */
+    public List<Student> sortStudentsByName() {
+        return new ArrayList<>(byName);
+    }
+
+    /**
+     * Returns students of indexed roster with given first name sorted by name.
+     *
+     * @param name first name
+     * @return new sorted list
+     */
+    public List<Student> findStudentsByFirstName(final String name) {
+        return find(byFirstName, name);
+    }
+
+    /**
+     * Returns students of indexed roster with given last name sorted by name.
+     *
+     * @param name last name
+     * @return new sorted list
+     */
+    public List<Student> findStudentsByLastName(final String name) {
+        return find(byLastName, name);
+    }
+
+    /**
+     * Returns students of indexed roster from given group sorted by name.
+     *
+     * @param group group name
+     * @return new sorted list
+     */
+    public List<Student> findStudentsByGroup(final GroupName group) {
+        return find(byGroupByName, group);
+    }
+
+    /**
+     * Returns students of indexed roster from given group sorted by id.
+     *
+     * @param group group name
+     * @return new sorted list
+     */
+    public List<Student> findStudentsByGroupById(final GroupName group) {
+        return find(byGroupById, group);
+    }
+
+    /**
+     * Returns last names of students from given group of indexed roster mapped to minimal first name.
+     *
+     * @param group group name
+     * @return map from last name to first name
+     */
+    public Map<String, String> findStudentNamesByGroup(final GroupName group) {
+        return byGroupByName.getOrDefault(group, List.of()).stream()
+                .collect(Collectors.toMap(Student::getLastName, Student::getFirstName,
+                        BinaryOperator.minBy(String::compareTo)));
+    }
+
+    @Override
+    protected List<Student> snapshot(final Collection<Student> students) {
+        return isRoster(students) ? ordered : super.snapshot(students);
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return isRoster(students) ? copy(groupsByName) : super.getGroupsByName(students);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return isRoster(students) ? copy(groupsById) : super.getGroupsById(students);
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return isRoster(students) ? largestGroup : super.getLargestGroup(students);
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        return isRoster(students) ? largestGroupFirstName : super.getLargestGroupFirstName(students);
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return isRoster(students) ? mostPopularName : super.getMostPopularName(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return isRoster(students) ? sortStudentsById() : super.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return isRoster(students) ? sortStudentsByName() : super.sortStudentsByName(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        return isRoster(students) ? findStudentsByFirstName(name) : super.findStudentsByFirstName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        return isRoster(students) ? findStudentsByLastName(name) : super.findStudentsByLastName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return isRoster(students) ? findStudentsByGroup(group) : super.findStudentsByGroup(students, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        return isRoster(students) ? findStudentNamesByGroup(group) : super.findStudentNamesByGroup(students, group);
+    }
+}
@@ -0,0 +1,402 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link StudentDB} over a mutable roster of students with unique ids.
+ * Every change is applied to the indexes as a pair of removed and added student, so indexes and
+ * cached answers of aggregate queries are updated in {@code O(log n)} instead of being rebuilt.
+ * <p>
+ * Changes are serialized, queries never lock: indexes are {@link PersistentSet persistent sets}, so each change
+ * builds new immutable version of all indexes and aggregate answers, that shares most of the previous one.
+ * The version is published by a single volatile write and each query reads one version,
+ * so it never sees a partially applied change.
+ * Queries over any collection other than {@link #students()} are delegated to {@link StudentDB}.
+ * As in {@link StudentDB}, returned lists and groups are fresh mutable copies.
+ */
+public class MutableStudentDB extends StudentDB {
+    private static final Comparator<Map.Entry<GroupName, Long>> GROUP_LOWER_COMPARATOR =
+            Map.Entry.<GroupName, Long>comparingByValue()
+                    .thenComparing(Map.Entry.<GroupName, Long>comparingByKey().reversed());
+    private static final Comparator<Map.Entry<String, Long>> POPULAR_NAME_COMPARATOR =
+            Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+    private static final Comparator<Student> BY_ID = Comparator.naturalOrder();
+    private static final Comparator<Student> BY_FIRST_NAME =
+            Comparator.comparing(Student::getFirstName).thenComparing(STUDENT_COMPARATOR);
+    private static final Comparator<Student> BY_LAST_NAME =
+            Comparator.comparing(Student::getLastName).thenComparing(STUDENT_COMPARATOR);
+    private static final Comparator<Student> BY_GROUP_BY_NAME =
+            Comparator.comparing(Student::getGroup).thenComparing(STUDENT_COMPARATOR);
+    private static final Comparator<Student> BY_GROUP_BY_ID =
+            Comparator.comparing(Student::getGroup).thenComparing(BY_ID);
+
+    private final Ranking<GroupName> groupSizes = new Ranking<>(GROUP_SIZE_COMPARATOR);
+    private final Ranking<GroupName> groupFirstNames = new Ranking<>(GROUP_LOWER_COMPARATOR);
+    private final Ranking<String> nameGroups = new Ranking<>(POPULAR_NAME_COMPARATOR);
+    private final Map<Map.Entry<GroupName, String>, Long> groupFirstNameCounts = new HashMap<>();
+
+    private volatile State state = new State();
+    private final Collection<Student> students = new AbstractCollection<>() {
+        @Override
+        public Iterator<Student> iterator() {
+            return state.byId.iterator();
+        }
+
+        @Override
+        public int size() {
+            return state.byId.size();
+        }
+    };
+
+    /**
+     * Constructs empty database.
+     */
+    public MutableStudentDB() {
+    }
+
+    /**
+     * Constructs database with given students.
+     *
+     * @param students initial students
+     * @throws IllegalArgumentException if ids of students aren't unique
+     */
+    public MutableStudentDB(final Collection<Student> students) {
+        for (final Student student : students) {
+            if (!add(student)) {
+                throw new IllegalArgumentException("Duplicate student id " + student.getId());
+            }
+        }
+    }
+
+    /**
+     * Adds student, if there is no student with the same id.
+     *
+     * @param student added student
+     * @return {@code true} if student was added
+     */
+    public synchronized boolean add(final Student student) {
+        if (get(student.getId()) != null) {
+            return false;
+        }
+        onChange(null, student);
+        return true;
+    }
+
+    /**
+     * Removes student with given id.
+     *
+     * @param id student id
+     * @return removed student or {@code null}, if there was no such student
+     */
+    public synchronized Student remove(final int id) {
+        final Student removed = get(id);
+        if (removed != null) {
+            onChange(removed, null);
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces student with the same id, for example, after transfer to another group.
+     *
+     * @param student new version of student
+     * @return previous version of student or {@code null}, if there was no such student and nothing was changed
+     */
+    public synchronized Student update(final Student student) {
+        final Student previous = get(student.getId());
+        if (previous != null) {
+            onChange(previous, student);
+        }
+        return previous;
+    }
+
+    private void onChange(final Student removed, final Student added) {
+        if (removed != null) {
+            groupSizes.add(removed.getGroup(), -1);
+            countGroupFirstName(removed, -1);
+        }
+        if (added != null) {
+            groupSizes.add(added.getGroup(), 1);
+            countGroupFirstName(added, 1);
+        }
+        state = new State(state, removed, added, groupSizes.max(), groupFirstNames.max(),
+                Objects.requireNonNullElse(nameGroups.max(), DEFAULT_VALUE));
+    }
+
+    private void countGroupFirstName(final Student student, final long delta) {
+        final Map.Entry<GroupName, String> key = Map.entry(student.getGroup(), student.getFirstName());
+        final long count = groupFirstNameCounts.getOrDefault(key, 0L) + delta;
+        if (count == 0) {
+            groupFirstNameCounts.remove(key);
+        } else {
+            groupFirstNameCounts.put(key, count);
+        }
+        if (count == 0 || count == delta) {
+            groupFirstNames.add(student.getGroup(), delta);
+            nameGroups.add(student.getFirstName(), delta);
+        }
+    }
+
+    /**
+     * Returns students of {@code index} with given key sorted by index order. Students never have {@code null}
+     * fields, so nobody is found for {@code null}.
+     */
+    private static <K extends Comparable<? super K>> List<Student> find(final PersistentSet<Student> index,
+                                                                       final Function<Student, K> getter,
+                                                                       final K key) {
+        return key == null ? new ArrayList<>() : index.range(student -> getter.apply(student).compareTo(key));
+    }
+
+    private boolean isRoster(final Collection<Student> students) {
+        return students == this.students;
+    }
+
+    /**
+     * Returns live view of all students in order of their ids.
+     * Each iteration sees students of a single version of database.
+     * Passing this view to query methods makes them use indexes.
+     *
+     * @return unmodifiable view of students
+     */
+    public Collection<Student> students() {
+        return students;
+    }
+
+    /**
+     * Returns number of students.
+     *
+     * @return number of students
+     */
+    public int size() {
+        return state.byId.size();
+    }
+
+    /**
+     * Returns student with given id.
+     *
+     * @param id student id
+     * @return student or {@code null}, if there is no such student
+     */
+    public Student get(final int id) {
+        return state.byId.find(student -> Integer.compare(student.getId(), id));
+    }
+
+    /**
+     * Returns all students sorted by id.
+     *
+     * @return sorted list
+     */
+    public List<Student> sortStudentsById() {
+        return state.byId.toList();
+    }
+
+    /**
+     * Returns all students sorted by name.
+     *
+     * @return sorted list
+     */
+    public List<Student> sortStudentsByName() {
+        return state.byName.toList();
+    }
+
+    /**
+     * Returns students with given first name sorted by name.
+     *
+     * @param name first name
+     * @return sorted list
+     */
+    public List<Student> findStudentsByFirstName(final String name) {
+        return find(state.byFirstName, Student::getFirstName, name);
+    }
+
+    /**
+     * Returns students with given last name sorted by name.
+     *
+     * @param name last name
+     * @return sorted list
+     */
+    public List<Student> findStudentsByLastName(final String name) {
+        return find(state.byLastName, Student::getLastName, name);
+    }
+
+    /**
+     * Returns students from given group sorted by name.
+     *
+     * @param group group name
+     * @return sorted list
+     */
+    public List<Student> findStudentsByGroup(final GroupName group) {
+        return find(state.byGroupByName, Student::getGroup, group);
+    }
+
+    /**
+     * Returns last names of students from given group mapped to minimal first name.
+     *
+     * @param group group name
+     * @return map from last name to first name
+     */
+    public Map<String, String> findStudentNamesByGroup(final GroupName group) {
+        return findStudentsByGroup(group).stream()
+                .collect(Collectors.toMap(Student::getLastName, Student::getFirstName,
+                        BinaryOperator.minBy(String::compareTo)));
+    }
+
+    private static List<Group> getGroups(final PersistentSet<Student> index) {
+        final List<Group> groups = new ArrayList<>();
+        for (final GroupName name : GroupName.values()) {
+            final List<Student> students = find(index, Student::getGroup, name);
+            if (!students.isEmpty()) {
+                groups.add(new Group(name, students));
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    protected List<Student> snapshot(final Collection<Student> students) {
+        return isRoster(students) ? sortStudentsById() : super.snapshot(students);
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return isRoster(students) ? getGroups(state.byGroupByName) : super.getGroupsByName(students);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return isRoster(students) ? getGroups(state.byGroupById) : super.getGroupsById(students);
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return isRoster(students) ? state.largestGroup : super.getLargestGroup(students);
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        return isRoster(students) ? state.largestGroupFirstName : super.getLargestGroupFirstName(students);
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return isRoster(students) ? state.mostPopularName : super.getMostPopularName(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return isRoster(students) ? sortStudentsById() : super.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return isRoster(students) ? sortStudentsByName() : super.sortStudentsByName(students);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        return isRoster(students) ? findStudentsByFirstName(name) : super.findStudentsByFirstName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        return isRoster(students) ? findStudentsByLastName(name) : super.findStudentsByLastName(students, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return isRoster(students) ? findStudentsByGroup(group) : super.findStudentsByGroup(students, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        return isRoster(students) ? findStudentNamesByGroup(group) : super.findStudentNamesByGroup(students, group);
+    }
+
+    /**
+     * Immutable version of indexes and answers of aggregate queries.
+     */
+    private static class State {
+        private final PersistentSet<Student> byId;
+        private final PersistentSet<Student> byName;
+        private final PersistentSet<Student> byFirstName;
+        private final PersistentSet<Student> byLastName;
+        private final PersistentSet<Student> byGroupByName;
+        private final PersistentSet<Student> byGroupById;
+        private final GroupName largestGroup;
+        private final GroupName largestGroupFirstName;
+        private final String mostPopularName;
+
+        private State() {
+            byId = PersistentSet.empty(BY_ID);
+            byName = PersistentSet.empty(STUDENT_COMPARATOR);
+            byFirstName = PersistentSet.empty(BY_FIRST_NAME);
+            byLastName = PersistentSet.empty(BY_LAST_NAME);
+            byGroupByName = PersistentSet.empty(BY_GROUP_BY_NAME);
+            byGroupById = PersistentSet.empty(BY_GROUP_BY_ID);
+            largestGroup = null;
+            largestGroupFirstName = null;
+            mostPopularName = DEFAULT_VALUE;
+        }
+
+        /**
+         * Returns next version of {@code previous} with {@code removed} student replaced by {@code added} one.
+         */
+        private State(final State previous, final Student removed, final Student added,
+                      final GroupName largestGroup, final GroupName largestGroupFirstName,
+                      final String mostPopularName) {
+            byId = change(previous.byId, removed, added);
+            byName = change(previous.byName, removed, added);
+            byFirstName = change(previous.byFirstName, removed, added);
+            byLastName = change(previous.byLastName, removed, added);
+            byGroupByName = change(previous.byGroupByName, removed, added);
+            byGroupById = change(previous.byGroupById, removed, added);
+            this.largestGroup = largestGroup;
+            this.largestGroupFirstName = largestGroupFirstName;
+            this.mostPopularName = mostPopularName;
+        }
+
+        private static PersistentSet<Student> change(final PersistentSet<Student> index,
+                                                     final Student removed, final Student added) {
+            final PersistentSet<Student> rest = removed == null ? index : index.remove(removed);
+            return added == null ? rest : rest.add(added);
+        }
+    }
+
+    /**
+     * Counters of keys, that are kept ordered by given comparator, so maximum is found in {@code O(log n)}.
+     * Accessed only by writers.
+     */
+    private static class Ranking<K> {
+        private final Map<K, Long> counts = new HashMap<>();
+        private final TreeSet<Map.Entry<K, Long>> ranked;
+
+        private Ranking(final Comparator<Map.Entry<K, Long>> comparator) {
+            ranked = new TreeSet<>(comparator);
+        }
+
+        private void add(final K key, final long delta) {
+            final Long count = counts.get(key);
+            if (count != null) {
+                ranked.remove(Map.entry(key, count));
+            }
+            final long updated = (count == null ? 0 : count) + delta;
+            if (updated == 0) {
+                counts.remove(key);
+            } else {
+                counts.put(key, updated);
+                ranked.add(Map.entry(key, updated));
+            }
+        }
+
+        private K max() {
+            return ranked.isEmpty() ? null : ranked.last().getKey();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+
+/**
+ * Group of students with paged access in given order.
+ * The first page from the beginning of the group is selected with a bounded heap, as often it is the only one.
+ * Any other page or the whole group sorts students once, further pages are sublists of sorted list.
+ */
+public class PagedGroup {
+    private final GroupName name;
+    private final List<Student> students;
+    private final Comparator<Student> comparator;
+    private List<Student> sorted;
+    private boolean paged;
+
+    /**
+     * Constructs group of given students.
+     *
+     * @param name       group name
+     * @param students   unsorted students of group
+     * @param comparator order of students in pages
+     */
+    PagedGroup(final GroupName name, final List<Student> students, final Comparator<Student> comparator) {
+        this.name = name;
+        this.students = students;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Returns group name.
+     *
+     * @return group name
+     */
+    public GroupName getName() {
+        return name;
+    }
+
+    /**
+     * Returns number of students in group.
+     *
+     * @return group size
+     */
+    public int size() {
+        return students.size();
+    }
+
+    /**
+     * Returns students from {@code offset} to {@code offset + limit} in group order.
+     *
+     * @param offset number of skipped students
+     * @param limit  maximal number of returned students
+     * @return page of students
+     */
+    public synchronized List<Student> page(final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit should be >= 0, found " + offset + " and " + limit);
+        }
+        if (sorted == null && !paged && offset == 0) {
+            paged = true;
+            return TopK.smallest(students, comparator, limit);
+        }
+        final List<Student> all = sorted();
+        final int from = Math.min(offset, all.size());
+        return new ArrayList<>(all.subList(from, (int) Math.min(all.size(), (long) from + limit)));
+    }
+
+    /**
+     * Returns group with all students sorted.
+     *
+     * @return sorted group
+     */
+    public synchronized Group toGroup() {
+        return new Group(name, new ArrayList<>(sorted()));
+    }
+
+    private List<Student> sorted() {
+        if (sorted == null) {
+            sorted = new ArrayList<>(students);
+            sorted.sort(comparator);
+        }
+        return sorted;
+    }
+}
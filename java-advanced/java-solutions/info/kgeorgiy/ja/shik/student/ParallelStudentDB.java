@@ -0,0 +1,104 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * {@link StudentDB}, that runs grouping and sorting queries in parallel for large collections.
+ * Order-insensitive aggregations use concurrent grouping collectors. Groups of students are collected
+ * preserving encounter order and sorted by {@link Arrays#parallelSort(Object[], Comparator)}, that is stable,
+ * so results are identical to sequential ones even for students with equal keys.
+ * Collections smaller than threshold are processed sequentially.
+ */
+public class ParallelStudentDB extends StudentDB {
+    /**
+     * Default minimal size of collection, that is processed in parallel.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+    private final int threshold;
+
+    /**
+     * Constructs database with {@link #DEFAULT_THRESHOLD default threshold}.
+     */
+    public ParallelStudentDB() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs database with given threshold.
+     *
+     * @param threshold minimal size of collection, that is processed in parallel
+     */
+    public ParallelStudentDB(final int threshold) {
+        this.threshold = threshold;
+    }
+
+    private boolean isLarge(final Collection<Student> students) {
+        return students.size() >= threshold;
+    }
+
+    private static List<Student> parallelSorted(final Collection<Student> students, final Comparator<Student> comparator) {
+        final Student[] array = students.toArray(new Student[0]);
+        Arrays.parallelSort(array, comparator);
+        return new ArrayList<>(Arrays.asList(array));
+    }
+
+    private static List<Group> parallelGroups(final Collection<Student> students, final Comparator<Student> comparator) {
+        return students.parallelStream()
+                .collect(Collectors.groupingBy(Student::getGroup))
+                .entrySet().stream()
+                .map(entry -> new Group(entry.getKey(), parallelSorted(entry.getValue(), comparator)))
+                .sorted(Comparator.comparing(Group::getName))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return isLarge(students) ? parallelGroups(students, STUDENT_COMPARATOR) : super.getGroupsByName(students);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return isLarge(students) ? parallelGroups(students, Comparator.naturalOrder()) : super.getGroupsById(students);
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return isLarge(students)
+                ? students.parallelStream()
+                        .collect(Collectors.groupingByConcurrent(Student::getGroup, Collectors.counting()))
+                        .entrySet().stream()
+                        .max(GROUP_SIZE_COMPARATOR)
+                        .map(Map.Entry::getKey)
+                        .orElse(null)
+                : super.getLargestGroup(students);
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return isLarge(students)
+                ? students.parallelStream()
+                        .collect(Collectors.groupingByConcurrent(Student::getFirstName,
+                                Collectors.mapping(Student::getGroup, toGroupSet())))
+                        .entrySet().stream()
+                        .max(popularNameComparator)
+                        .map(Map.Entry::getKey)
+                        .orElse(DEFAULT_VALUE)
+                : super.getMostPopularName(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return isLarge(students) ? parallelSorted(students, Comparator.naturalOrder()) : super.sortStudentsById(students);
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return isLarge(students) ? parallelSorted(students, STUDENT_COMPARATOR) : super.sortStudentsByName(students);
+    }
+}
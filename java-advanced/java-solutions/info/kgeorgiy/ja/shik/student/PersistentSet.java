@@ -0,0 +1,235 @@
+package info.kgeorgiy.ja.shik.student;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable sorted set, that is a randomized search tree (treap) changed by copying paths from the root.
+ * Adding or removing an element creates new version in expected {@code O(log n)}, sharing the rest
+ * of the tree with previous version, that stays valid. So versions can be read without any locks.
+ *
+ * @param <T> type of elements
+ */
+final class PersistentSet<T> implements Iterable<T> {
+    private final Comparator<? super T> comparator;
+    private final Node<T> root;
+    private final int size;
+
+    private PersistentSet(final Comparator<? super T> comparator, final Node<T> root, final int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns empty set.
+     *
+     * @param comparator order of elements
+     * @param <T>        type of elements
+     * @return empty set
+     */
+    static <T> PersistentSet<T> empty(final Comparator<? super T> comparator) {
+        return new PersistentSet<>(comparator, null, 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns version of this set with {@code value}. Element equal to {@code value} is replaced.
+     *
+     * @param value added element
+     * @return new version of set
+     */
+    PersistentSet<T> add(final T value) {
+        final PersistentSet<T> set = remove(value);
+        final Node<T> node = new Node<>(value, ThreadLocalRandom.current().nextInt(), null, null);
+        return new PersistentSet<>(comparator, set.insert(set.root, node), set.size + 1);
+    }
+
+    /**
+     * Returns version of this set without element equal to {@code value}.
+     *
+     * @param value removed element
+     * @return new version of set or this set, if there is no such element
+     */
+    PersistentSet<T> remove(final T value) {
+        final Node<T> updated = remove(root, value);
+        return updated == root ? this : new PersistentSet<>(comparator, updated, size - 1);
+    }
+
+    /**
+     * Returns element, for which {@code probe} returns zero. {@code probe} should be consistent with set order:
+     * negative for elements before the searched one and positive for elements after it.
+     *
+     * @param probe position of element relative to searched one
+     * @return found element or {@code null}
+     */
+    T find(final ToIntFunction<? super T> probe) {
+        for (Node<T> node = root; node != null; ) {
+            final int c = probe.applyAsInt(node.value);
+            if (c == 0) {
+                return node.value;
+            }
+            node = c < 0 ? node.right : node.left;
+        }
+        return null;
+    }
+
+    /**
+     * Returns sorted elements, for which {@code probe} returns zero, in {@code O(log n + k)}.
+     * {@code probe} should be consistent with set order: negative for elements before the range
+     * and positive for elements after it.
+     *
+     * @param probe position of element relative to the range
+     * @return new list of elements in the range
+     */
+    List<T> range(final ToIntFunction<? super T> probe) {
+        final List<T> result = new ArrayList<>();
+        range(root, probe, result);
+        return result;
+    }
+
+    /**
+     * Returns all elements in set order.
+     *
+     * @return new sorted list
+     */
+    List<T> toList() {
+        final List<T> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node<T>> path = new ArrayDeque<>();
+
+            {
+                descend(root);
+            }
+
+            private void descend(Node<T> node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                final Node<T> node = path.pop();
+                descend(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    private Node<T> insert(final Node<T> node, final Node<T> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            final Node<T>[] parts = split(node, inserted.value);
+            return new Node<>(inserted.value, inserted.priority, parts[0], parts[1]);
+        }
+        return comparator.compare(inserted.value, node.value) < 0
+                ? node.withChildren(insert(node.left, inserted), node.right)
+                : node.withChildren(node.left, insert(node.right, inserted));
+    }
+
+    private Node<T> remove(final Node<T> node, final T value) {
+        if (node == null) {
+            return null;
+        }
+        final int c = comparator.compare(value, node.value);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        return c < 0
+                ? node.withChildren(remove(node.left, value), node.right)
+                : node.withChildren(node.left, remove(node.right, value));
+    }
+
+    /**
+     * Splits tree to elements less than {@code value} and other elements.
+     */
+    private Node<T>[] split(final Node<T> node, final T value) {
+        @SuppressWarnings("unchecked") final Node<T>[] parts = (Node<T>[]) new Node<?>[2];
+        if (node == null) {
+            return parts;
+        }
+        if (comparator.compare(node.value, value) < 0) {
+            final Node<T>[] right = split(node.right, value);
+            parts[0] = node.withChildren(node.left, right[0]);
+            parts[1] = right[1];
+        } else {
+            final Node<T>[] left = split(node.left, value);
+            parts[0] = left[0];
+            parts[1] = node.withChildren(left[1], node.right);
+        }
+        return parts;
+    }
+
+    /**
+     * Merges trees, where all elements of {@code left} are less than elements of {@code right}.
+     */
+    private static <T> Node<T> merge(final Node<T> left, final Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return left.priority > right.priority
+                ? left.withChildren(left.left, merge(left.right, right))
+                : right.withChildren(merge(left, right.left), right.right);
+    }
+
+    private static <T> void range(final Node<T> node, final ToIntFunction<? super T> probe, final List<T> result) {
+        if (node == null) {
+            return;
+        }
+        final int c = probe.applyAsInt(node.value);
+        if (c >= 0) {
+            range(node.left, probe, result);
+        }
+        if (c == 0) {
+            result.add(node.value);
+        }
+        if (c <= 0) {
+            range(node.right, probe, result);
+        }
+    }
+
+    private static class Node<T> {
+        private final T value;
+        private final int priority;
+        private final Node<T> left;
+        private final Node<T> right;
+
+        private Node(final T value, final int priority, final Node<T> left, final Node<T> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns copy of this node with given children or this node, if children are the same.
+         */
+        private Node<T> withChildren(final Node<T> left, final Node<T> right) {
+            return left == this.left && right == this.right ? this : new Node<>(value, priority, left, right);
+        }
+    }
+}
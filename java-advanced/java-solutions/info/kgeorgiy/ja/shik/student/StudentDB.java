@@ -8,7 +8,6 @@ import info.kgeorgiy.java.advanced.student.Student;
 import java.util.*;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -16,9 +15,9 @@ import java.util.stream.Stream;
 
 public class StudentDB implements AdvancedQuery {
 
-    private static final String DEFAULT_VALUE = "";
+    static final String DEFAULT_VALUE = "";
 
-    private static final Comparator<Student> STUDENT_COMPARATOR = Comparator
+    static final Comparator<Student> STUDENT_COMPARATOR = Comparator
             .comparing(Student::getLastName)
             .thenComparing(Student::getFirstName).reversed()
             .thenComparing(Student::getId);
@@ -30,8 +29,18 @@ public class StudentDB implements AdvancedQuery {
                 .thenComparing(keyComparator);
     }
 
-    private static final Comparator<Map.Entry<GroupName, List<String>>> GROUP_GREATER_COMPARATOR =
-            generateGroupComparator(Map.Entry.comparingByKey());
+    static final Comparator<Map.Entry<GroupName, Long>> GROUP_SIZE_COMPARATOR =
+            Map.Entry.<GroupName, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    private static final StudentQueryPlan BY_ID = StudentQueryPlan.builder()
+            .orderBy(StudentQueryPlan.Key.ID)
+            .build();
+
+    private static final StudentQueryPlan BY_NAME = StudentQueryPlan.builder()
+            .orderBy(StudentQueryPlan.Key.LAST_NAME, true)
+            .orderBy(StudentQueryPlan.Key.FIRST_NAME, true)
+            .orderBy(StudentQueryPlan.Key.ID)
+            .build();
 
     private static final Comparator<Map.Entry<GroupName, Set<String>>> GROUP_LOWER_COMPARATOR =
             generateGroupComparator(Map.Entry.<GroupName, Set<String>>comparingByKey().reversed());
@@ -56,28 +65,26 @@ public class StudentDB implements AdvancedQuery {
         return collect(students.stream(), collector);
     }
 
-    private static List<Group> getGroupsBy(final Collection<Student> students, final Comparator<Student> comparator) {
-        return toList(entryStream(
-                collectStudents(students, Collectors.groupingBy(Student::getGroup)))
-                .map(entry -> new Group(entry.getKey(), sortedStudents(entry.getValue(), comparator)))
-                .sorted(Comparator.comparing(Group::getName)));
-    }
-
     @Override
     public List<Group> getGroupsByName(final Collection<Student> students) {
-        return getGroupsBy(students, STUDENT_COMPARATOR);
+        return BY_NAME.executeGroups(students);
     }
 
-    @Override
-    public List<Group> getGroupsById(final Collection<Student> students) {
-        return getGroupsBy(students, Comparator.naturalOrder());
+    /**
+     * Returns groups of students, that are sorted by name lazily, page by page.
+     *
+     * @param students collection of students
+     * @return paged groups sorted by group name
+     */
+    public List<PagedGroup> getPagedGroupsByName(final Collection<Student> students) {
+        return toList(entryStream(collectStudents(students, Collectors.groupingBy(Student::getGroup)))
+                .map(entry -> new PagedGroup(entry.getKey(), entry.getValue(), STUDENT_COMPARATOR))
+                .sorted(Comparator.comparing(PagedGroup::getName)));
     }
 
-    private static <T extends Collection<V>, K, V> Map<K, T> groupingBy(final Collection<Student> students,
-                                                                        final Function<Student, K> keyFunction,
-                                                                        final Function<Student, V> valueFunction,
-                                                                        final Collector<V, ?, T> collector) {
-        return collectStudents(students, Collectors.groupingBy(keyFunction, Collectors.mapping(valueFunction, collector)));
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return BY_ID.executeGroups(students);
     }
 
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -91,15 +98,22 @@ public class StudentDB implements AdvancedQuery {
         return stream.max(comparator).map(mapFunciton);
     }
 
+    private static <K, A> Optional<K> getGroupingMaxKey(final Collection<Student> students,
+                                                        final Function<Student, K> keyFunction,
+                                                        final Collector<Student, ?, A> downstream,
+                                                        final Comparator<Map.Entry<K, A>> comparator) {
+        return getMaxAndMap(
+                entryStream(collectStudents(students, Collectors.groupingBy(keyFunction, downstream))),
+                comparator,
+                Map.Entry::getKey);
+    }
+
     private static <T extends Collection<V>, K, V> Optional<K> getGroupingMaxAndMap(final Collection<Student> students,
                                                                                     final Function<Student, K> keyFunction,
                                                                                     final Function<Student, V> valueFunction,
                                                                                     final Collector<V, ?, T> collector,
                                                                                     final Comparator<Map.Entry<K, T>> comparator) {
-        return getMaxAndMap(
-                entryStream(groupingBy(students, keyFunction, valueFunction, collector)),
-                comparator,
-                Map.Entry::getKey);
+        return getGroupingMaxKey(students, keyFunction, Collectors.mapping(valueFunction, collector), comparator);
     }
 
     private static <T extends Collection<String>> GroupName getLargestGroupBy(final Collection<Student> students,
@@ -111,7 +125,7 @@ public class StudentDB implements AdvancedQuery {
 
     @Override
     public GroupName getLargestGroup(final Collection<Student> students) {
-        return getLargestGroupBy(students, Collectors.toList(), GROUP_GREATER_COMPARATOR);
+        return getGroupingMaxKey(students, Student::getGroup, Collectors.counting(), GROUP_SIZE_COMPARATOR).orElse(null);
     }
 
     @Override
@@ -157,28 +171,50 @@ public class StudentDB implements AdvancedQuery {
         return orElseDefault(getMaxAndMap(students.stream(), Comparator.naturalOrder(), Student::getFirstName));
     }
 
-    private static List<Student> sortedStudents(final Collection<Student> students, final Comparator<Student> comparator) {
-        return sortedStudents(students.stream(), comparator);
-    }
-
     private static List<Student> sortedStudents(final Stream<Student> stream, final Comparator<Student> comparator) {
         return toList(stream.sorted(comparator));
     }
 
     @Override
     public List<Student> sortStudentsById(final Collection<Student> students) {
-        return sortedStudents(students, Comparator.naturalOrder());
+        return BY_ID.execute(students);
     }
 
     @Override
     public List<Student> sortStudentsByName(final Collection<Student> students) {
-        return sortedStudents(students, STUDENT_COMPARATOR);
+        return BY_NAME.execute(students);
     }
 
     private static List<Student> sortStudentsByName(final Stream<Student> stream) {
         return sortedStudents(stream, STUDENT_COMPARATOR);
     }
 
+    /**
+     * Returns first {@code k} students in given order without sorting the whole collection.
+     *
+     * @param students   collection of students
+     * @param comparator order of students
+     * @param k          maximal number of returned students
+     * @return the same students as the first {@code k} of stably sorted {@code students}
+     */
+    public List<Student> topK(final Collection<Student> students, final Comparator<Student> comparator, final int k) {
+        return TopK.smallest(students, comparator, k);
+    }
+
+    /**
+     * Returns page of students in given order without sorting the whole collection.
+     *
+     * @param students   collection of students
+     * @param comparator order of students
+     * @param offset     number of skipped students
+     * @param limit      maximal number of returned students
+     * @return the same students as sublist of stably sorted {@code students}
+     */
+    public List<Student> page(final Collection<Student> students, final Comparator<Student> comparator,
+                              final int offset, final int limit) {
+        return TopK.page(students, comparator, offset, limit);
+    }
+
     private <T> List<Student> findStudentsBy(final Collection<Student> students, final Function<Student, T> getter, final T name) {
         return sortStudentsByName(students.stream().filter(student -> Objects.equals(name, getter.apply(student))));
     }
@@ -204,17 +240,38 @@ public class StudentDB implements AdvancedQuery {
                 Collectors.toMap(Student::getLastName, Student::getFirstName, BinaryOperator.minBy(String::compareTo)));
     }
 
-    private static final Comparator<Map.Entry<String, Set<GroupName>>> popularNameComparator =
+    static final Comparator<Map.Entry<String, Set<GroupName>>> popularNameComparator =
             Map.Entry.<String, Set<GroupName>>comparingByValue(Comparator.comparingInt(Set::size))
                     .thenComparing(Map.Entry.comparingByKey());
 
+    static Collector<GroupName, ?, Set<GroupName>> toGroupSet() {
+        return Collectors.toCollection(() -> EnumSet.noneOf(GroupName.class));
+    }
+
     @Override
     public String getMostPopularName(final Collection<Student> students) {
-        return orElseDefault(getGroupingMaxAndMap(students, Student::getFirstName, Student::getGroup, Collectors.toSet(), popularNameComparator));
+        return orElseDefault(getGroupingMaxAndMap(students, Student::getFirstName, Student::getGroup, toGroupSet(), popularNameComparator));
+    }
+
+    /**
+     * Returns random-access view of {@code students} in their iteration order.
+     * Called once per indexed query, so indexed access costs {@code O(n + k)}.
+     *
+     * @param students collection of students
+     * @return {@code students} itself, if it is a random-access list, or its copy otherwise
+     */
+    protected List<Student> snapshot(final Collection<Student> students) {
+        return students instanceof List && students instanceof RandomAccess
+                ? (List<Student>) students
+                : new ArrayList<>(students);
+    }
+
+    private static <T> List<T> getByIndices(final List<Student> students, final int[] indices, final Function<Student, T> getter) {
+        return toList(Arrays.stream(indices).mapToObj(students::get).map(getter));
     }
 
-    private static <T> List<T> getByIndices(final Collection<Student> students, final int[] indices, final Function<Student, T> getter) {
-        return toList(Arrays.stream(indices).mapToObj(i -> mapToList(students, getter).get(i)));
+    private <T> List<T> getByIndices(final Collection<Student> students, final int[] indices, final Function<Student, T> getter) {
+        return getByIndices(snapshot(students), indices, getter);
     }
 
     @Override
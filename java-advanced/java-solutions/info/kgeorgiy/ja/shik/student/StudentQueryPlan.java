@@ -0,0 +1,242 @@
+package info.kgeorgiy.ja.shik.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compiled filter, sort and group query over students, that is described once and executed many times.
+ * <p>
+ * Instead of a chain of comparator lambdas, every execution extracts sort keys of selected students into
+ * {@code int} arrays: numeric keys are copied, string keys are replaced with ranks among distinct values.
+ * Students are then sorted by comparing array elements with a stable primitive sort,
+ * so results are the same as of stable sort by the equivalent {@link Comparator}.
+ * Plans are immutable and thread-safe.
+ */
+public final class StudentQueryPlan {
+    private final Predicate<? super Student> filter;
+    private final Key[] keys;
+    private final boolean[] descending;
+    private final int limit;
+
+    private StudentQueryPlan(final Builder builder) {
+        filter = builder.filter;
+        keys = builder.keys.toArray(new Key[0]);
+        descending = new boolean[keys.length];
+        for (int i = 0; i < descending.length; i++) {
+            descending[i] = builder.descending.get(i);
+        }
+        limit = builder.limit;
+    }
+
+    /**
+     * Returns builder of empty query, that selects all students in encounter order.
+     *
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns selected students sorted by plan order.
+     *
+     * @param students collection of students
+     * @return at most {@code limit} sorted students
+     */
+    public List<Student> execute(final Collection<Student> students) {
+        final List<Student> selected = select(students);
+        final int[] order = order(selected, false);
+        final int size = Math.min(order.length, limit);
+        final List<Student> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(selected.get(order[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns selected students grouped by group name. Groups are sorted by name,
+     * students of each group are sorted by plan order and limited by plan limit.
+     *
+     * @param students collection of students
+     * @return sorted groups
+     */
+    public List<Group> executeGroups(final Collection<Student> students) {
+        final List<Student> selected = select(students);
+        final int[] order = order(selected, true);
+        final List<Group> result = new ArrayList<>();
+        for (int from = 0, to; from < order.length; from = to) {
+            final List<Student> group = new ArrayList<>();
+            final GroupName name = selected.get(order[from]).getGroup();
+            for (to = from; to < order.length && selected.get(order[to]).getGroup() == name; to++) {
+                if (to - from < limit) {
+                    group.add(selected.get(order[to]));
+                }
+            }
+            result.add(new Group(name, group));
+        }
+        return result;
+    }
+
+    private List<Student> select(final Collection<Student> students) {
+        final List<Student> selected = new ArrayList<>(filter == null ? students.size() : 16);
+        for (final Student student : students) {
+            if (filter == null || filter.test(student)) {
+                selected.add(student);
+            }
+        }
+        return selected;
+    }
+
+    private int[] order(final List<Student> students, final boolean byGroup) {
+        final int offset = byGroup ? 1 : 0;
+        final int[][] columns = new int[keys.length + offset][];
+        final boolean[] reversed = new boolean[columns.length];
+        if (byGroup) {
+            columns[0] = Key.GROUP.extract(students);
+        }
+        for (int k = 0; k < keys.length; k++) {
+            columns[k + offset] = keys[k].extract(students);
+            reversed[k + offset] = descending[k];
+        }
+        return IndexSort.sorted(students.size(), (i, j) -> {
+            for (int k = 0; k < columns.length; k++) {
+                final int[] column = columns[k];
+                if (column[i] != column[j]) {
+                    return reversed[k] ? Integer.compare(column[j], column[i]) : Integer.compare(column[i], column[j]);
+                }
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Sort key of students.
+     */
+    public enum Key {
+        /** Student id. */
+        ID {
+            @Override
+            int[] extract(final List<Student> students) {
+                return students.stream().mapToInt(Student::getId).toArray();
+            }
+        },
+        /** First name in lexicographic order. */
+        FIRST_NAME {
+            @Override
+            int[] extract(final List<Student> students) {
+                return ranks(students, Student::getFirstName);
+            }
+        },
+        /** Last name in lexicographic order. */
+        LAST_NAME {
+            @Override
+            int[] extract(final List<Student> students) {
+                return ranks(students, Student::getLastName);
+            }
+        },
+        /** Group name in natural order. */
+        GROUP {
+            @Override
+            int[] extract(final List<Student> students) {
+                return students.stream().mapToInt(student -> student.getGroup().ordinal()).toArray();
+            }
+        };
+
+        abstract int[] extract(List<Student> students);
+
+        private static int[] ranks(final List<Student> students, final Function<Student, String> key) {
+            final Map<String, Integer> codes = new HashMap<>();
+            final int[] column = new int[students.size()];
+            for (int i = 0; i < column.length; i++) {
+                column[i] = codes.computeIfAbsent(key.apply(students.get(i)), value -> codes.size());
+            }
+            final String[] values = codes.keySet().toArray(new String[0]);
+            Arrays.sort(values);
+            final int[] ranks = new int[values.length];
+            for (int rank = 0; rank < values.length; rank++) {
+                ranks[codes.get(values[rank])] = rank;
+            }
+            for (int i = 0; i < column.length; i++) {
+                column[i] = ranks[column[i]];
+            }
+            return column;
+        }
+    }
+
+    /**
+     * Builder of {@link StudentQueryPlan}.
+     */
+    public static final class Builder {
+        private Predicate<? super Student> filter;
+        private final List<Key> keys = new ArrayList<>();
+        private final List<Boolean> descending = new ArrayList<>();
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds filter of students. Filters are combined by conjunction.
+         *
+         * @param predicate selected students
+         * @return this builder
+         */
+        public Builder where(final Predicate<? super Student> predicate) {
+            final Predicate<? super Student> previous = filter;
+            filter = previous == null ? predicate : student -> previous.test(student) && predicate.test(student);
+            return this;
+        }
+
+        /**
+         * Adds ascending sort key. Students with equal previous keys are compared by this key.
+         *
+         * @param key sort key
+         * @return this builder
+         */
+        public Builder orderBy(final Key key) {
+            return orderBy(key, false);
+        }
+
+        /**
+         * Adds sort key. Students with equal previous keys are compared by this key.
+         *
+         * @param key        sort key
+         * @param descending whether order is descending
+         * @return this builder
+         */
+        public Builder orderBy(final Key key, final boolean descending) {
+            keys.add(Objects.requireNonNull(key));
+            this.descending.add(descending);
+            return this;
+        }
+
+        /**
+         * Limits number of returned students.
+         *
+         * @param limit maximal number of returned students
+         * @return this builder
+         */
+        public Builder limit(final int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit should be >= 0, found " + limit);
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Compiles described query.
+         *
+         * @return immutable plan
+         */
+        public StudentQueryPlan build() {
+            return new StudentQueryPlan(this);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.shik.student;
+
+import java.util.*;
+
+/**
+ * Selection of the smallest elements with a bounded heap in {@code O(n log k)}.
+ * Elements, that are equal by comparator, keep their encounter order,
+ * so results are prefixes of stable sort.
+ */
+final class TopK {
+    private TopK() {
+    }
+
+    /**
+     * Returns {@code k} smallest elements sorted by {@code comparator}.
+     *
+     * @param elements   elements to select from
+     * @param comparator order of elements
+     * @param k          maximal number of returned elements
+     * @param <T>        type of elements
+     * @return sorted list of at most {@code k} elements
+     */
+    static <T> List<T> smallest(final Iterable<T> elements, final Comparator<? super T> comparator, final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of elements should be >= 0, found " + k);
+        }
+        final Comparator<Entry<T>> order = Comparator.<Entry<T>, T>comparing(entry -> entry.value, comparator)
+                .thenComparingLong(entry -> entry.index);
+        final PriorityQueue<Entry<T>> heap = new PriorityQueue<>(order.reversed());
+        long index = 0;
+        for (final T element : elements) {
+            final Entry<T> entry = new Entry<>(element, index++);
+            if (heap.size() < k) {
+                heap.add(entry);
+            } else if (k > 0 && order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        final List<T> result = new ArrayList<>(Collections.nCopies(heap.size(), null));
+        for (int i = heap.size() - 1; i >= 0; i--) {
+            result.set(i, heap.poll().value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns elements from {@code offset} to {@code offset + limit} of sorted {@code elements}.
+     *
+     * @param elements   elements to select from
+     * @param comparator order of elements
+     * @param offset     number of skipped smallest elements
+     * @param limit      maximal number of returned elements
+     * @param <T>        type of elements
+     * @return sorted list of at most {@code limit} elements
+     */
+    static <T> List<T> page(final Iterable<T> elements, final Comparator<? super T> comparator,
+                            final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit should be >= 0, found " + offset + " and " + limit);
+        }
+        final List<T> top = smallest(elements, comparator, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+        return new ArrayList<>(top.subList(Math.min(offset, top.size()), top.size()));
+    }
+
+    private static class Entry<T> {
+        private final T value;
+        private final long index;
+
+        private Entry(final T value, final long index) {
+            this.value = value;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.junit.Assert;
+
+import java.util.*;
+
+public class BaseTest {
+    protected static final String[] FIRST_NAMES = {"Alexey", "Georgiy", "Andrew", "Maria", "Olga", "Ivan", "Anna"};
+    protected static final String[] LAST_NAMES = {"Shik", "Korneev", "Stankevich", "Ivanova", "Petrov"};
+    protected static final int[] SIZES = {0, 1, 5, 50, 3000};
+    protected static final ReferenceQuery REFERENCE = new ReferenceQuery();
+
+    /**
+     * Generates {@code size} students of the first three groups with few distinct names.
+     * Ids are random and could repeat, unless {@code uniqueIds} is set.
+     */
+    protected static List<Student> roster(final long seed, final int size, final boolean uniqueIds) {
+        final Random random = new Random(seed);
+        final GroupName[] groups = GroupName.values();
+        final Set<Integer> ids = new HashSet<>();
+        final List<Student> students = new ArrayList<>();
+        while (students.size() < size) {
+            final int id = random.nextInt(2 * size);
+            if (!uniqueIds || ids.add(id)) {
+                students.add(new Student(id, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                        LAST_NAMES[random.nextInt(LAST_NAMES.length)], groups[random.nextInt(3)]));
+            }
+        }
+        return students;
+    }
+
+    protected static Student random(final Random random, final int id) {
+        return new Student(id, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                LAST_NAMES[random.nextInt(LAST_NAMES.length)], GroupName.values()[random.nextInt(3)]);
+    }
+
+    /**
+     * Checks every query of {@code query} over {@code view} against {@link ReferenceQuery} over {@code students}.
+     * {@code view} should contain the same students in the same order.
+     */
+    protected static void checkQueries(final AdvancedQuery query, final List<Student> students,
+                                       final Collection<Student> view) {
+        final String context = students.size() + " students";
+        final List<Student> list = new ArrayList<>(view);
+        Assert.assertEquals(context, students, list);
+        Assert.assertEquals(context, REFERENCE.getGroupsByName(students), query.getGroupsByName(view));
+        Assert.assertEquals(context, REFERENCE.getGroupsById(students), query.getGroupsById(view));
+        Assert.assertEquals(context, REFERENCE.getLargestGroup(students), query.getLargestGroup(view));
+        Assert.assertEquals(context, REFERENCE.getLargestGroupFirstName(students), query.getLargestGroupFirstName(view));
+        Assert.assertEquals(context, REFERENCE.getMostPopularName(students), query.getMostPopularName(view));
+        Assert.assertEquals(context, REFERENCE.getFirstNames(students), query.getFirstNames(list));
+        Assert.assertEquals(context, REFERENCE.getLastNames(students), query.getLastNames(list));
+        Assert.assertEquals(context, REFERENCE.getGroups(students), query.getGroups(list));
+        Assert.assertEquals(context, REFERENCE.getFullNames(students), query.getFullNames(list));
+        Assert.assertEquals(context, REFERENCE.getDistinctFirstNames(students), query.getDistinctFirstNames(list));
+        Assert.assertEquals(context, REFERENCE.getMaxStudentFirstName(students), query.getMaxStudentFirstName(list));
+        Assert.assertEquals(context, REFERENCE.sortStudentsById(students), query.sortStudentsById(view));
+        Assert.assertEquals(context, REFERENCE.sortStudentsByName(students), query.sortStudentsByName(view));
+        for (final String name : new String[]{FIRST_NAMES[0], FIRST_NAMES[6], "Nobody", null}) {
+            Assert.assertEquals(context + ", " + name, REFERENCE.findStudentsByFirstName(students, name),
+                    query.findStudentsByFirstName(view, name));
+        }
+        for (final String name : new String[]{LAST_NAMES[0], "Nobody", null}) {
+            Assert.assertEquals(context + ", " + name, REFERENCE.findStudentsByLastName(students, name),
+                    query.findStudentsByLastName(view, name));
+        }
+        final List<GroupName> groups = new ArrayList<>(Arrays.asList(GroupName.values()));
+        groups.add(null);
+        for (final GroupName group : groups) {
+            Assert.assertEquals(context + ", " + group, REFERENCE.findStudentsByGroup(students, group),
+                    query.findStudentsByGroup(view, group));
+            Assert.assertEquals(context + ", " + group, REFERENCE.findStudentNamesByGroup(students, group),
+                    query.findStudentNamesByGroup(view, group));
+        }
+        final int[] indices = students.isEmpty()
+                ? new int[0]
+                : new Random(students.size()).ints(20, 0, students.size()).toArray();
+        Assert.assertEquals(context, REFERENCE.getFirstNames(students, indices), query.getFirstNames(view, indices));
+        Assert.assertEquals(context, REFERENCE.getLastNames(students, indices), query.getLastNames(view, indices));
+        Assert.assertEquals(context, REFERENCE.getGroups(students, indices), query.getGroups(view, indices));
+        Assert.assertEquals(context, REFERENCE.getFullNames(students, indices), query.getFullNames(view, indices));
+    }
+}
@@ -0,0 +1,105 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.ja.shik.student.ColumnarStudentDB;
+import info.kgeorgiy.java.advanced.student.Student;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnarTest extends BaseTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_01_queries() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, true);
+            final ColumnarStudentDB db = new ColumnarStudentDB(students);
+            checkQueries(db, students, db.students());
+        }
+    }
+
+    @Test
+    public void test_02_repeatedIds() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size + 1, size, false);
+            final ColumnarStudentDB db = new ColumnarStudentDB(students);
+            checkQueries(db, students, db.students());
+        }
+    }
+
+    @Test
+    public void test_03_otherCollection() {
+        // Queries over collections other than students() view are answered by StudentDB
+        final List<Student> students = roster(4, 100, true);
+        final ColumnarStudentDB db = new ColumnarStudentDB(roster(5, 100, true));
+        checkQueries(db, students, students);
+        checkQueries(db, db.students(), new ArrayList<>(db.students()));
+    }
+
+    @Test
+    public void test_04_nullQueries() {
+        final ColumnarStudentDB db = new ColumnarStudentDB(roster(6, 50, true));
+        Assert.assertEquals(List.of(), db.findStudentsByFirstName(db.students(), null));
+        Assert.assertEquals(List.of(), db.findStudentsByLastName(db.students(), null));
+        Assert.assertEquals(List.of(), db.findStudentsByGroup(db.students(), null));
+        Assert.assertEquals(0, db.findStudentNamesByGroup(db.students(), null).size());
+    }
+
+    private Path roundTrip(final List<Student> students) throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("students.bin");
+        new ColumnarStudentDB(students).save(file);
+        final ColumnarStudentDB db = ColumnarStudentDB.load(file);
+        checkQueries(db, students, db.students());
+        return file;
+    }
+
+    @Test
+    public void test_05_snapshot() throws IOException {
+        for (final int size : SIZES) {
+            roundTrip(roster(size, size, false));
+        }
+        // Names outside of ASCII and Basic Multilingual Plane
+        roundTrip(List.of(
+                new Student(2, "\u0410\u043b\u0435\u043a\u0441\u0435\u0439", "\u0428\u0438\u043a", GroupName.values()[0]),
+                new Student(1, "\ud83d\ude00", "", GroupName.values()[1]),
+                new Student(3, "\u00e9", "\u4e2d\u6587", GroupName.values()[0])
+        ));
+        // Temporary file is moved to snapshot
+        Assert.assertEquals(List.of("students.bin"), List.of(folder.getRoot().list()));
+    }
+
+    private static void checkCorrupted(final Path file, final byte[] content) throws IOException {
+        Files.write(file, content);
+        try {
+            ColumnarStudentDB.load(file);
+            Assert.fail("Corrupted snapshot of " + content.length + " bytes loaded");
+        } catch (final IOException ignored) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void test_06_corruptedSnapshot() throws IOException {
+        final Path file = roundTrip(roster(7, 10, true));
+        final byte[] content = Files.readAllBytes(file);
+        for (int length = 0; length < content.length; length++) {
+            checkCorrupted(file, Arrays.copyOf(content, length));
+        }
+        final byte[] magic = content.clone();
+        magic[0]++;
+        checkCorrupted(file, magic);
+        final byte[] order = content.clone();
+        Arrays.fill(order, order.length - Integer.BYTES, order.length, (byte) 0xFF);
+        checkCorrupted(file, order);
+    }
+}
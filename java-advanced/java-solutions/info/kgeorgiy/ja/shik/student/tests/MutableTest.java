@@ -0,0 +1,153 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.ja.shik.student.MutableStudentDB;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MutableTest extends BaseTest {
+    private static void check(final MutableStudentDB db, final Map<Integer, Student> expected) {
+        Assert.assertEquals(expected.size(), db.size());
+        checkQueries(db, new ArrayList<>(expected.values()), db.students());
+    }
+
+    @Test
+    public void test_01_initial() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, true);
+            final Map<Integer, Student> expected = new TreeMap<>();
+            students.forEach(student -> expected.put(student.getId(), student));
+            check(new MutableStudentDB(students), expected);
+        }
+    }
+
+    @Test
+    public void test_02_changes() {
+        final Random random = new Random(2);
+        final MutableStudentDB db = new MutableStudentDB();
+        final Map<Integer, Student> expected = new TreeMap<>();
+        for (int i = 0; i < 3000; i++) {
+            final int id = random.nextInt(300);
+            final Student student = random(random, id);
+            switch (random.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(!expected.containsKey(id), db.add(student));
+                    expected.putIfAbsent(id, student);
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(id), db.remove(id));
+                    break;
+                default:
+                    Assert.assertEquals(expected.replace(id, student), db.update(student));
+            }
+            Assert.assertEquals(expected.get(id), db.get(id));
+            if (i % 100 == 0) {
+                check(db, expected);
+            }
+        }
+        check(db, expected);
+        for (final int id : List.copyOf(expected.keySet())) {
+            db.remove(id);
+            expected.remove(id);
+        }
+        check(db, expected);
+    }
+
+    @Test
+    public void test_03_duplicateIds() {
+        final List<Student> students = roster(3, 100, false);
+        try {
+            new MutableStudentDB(students);
+            Assert.fail("Duplicate ids accepted");
+        } catch (final IllegalArgumentException ignored) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void test_04_concurrentChanges() throws Exception {
+        final int threads = 8;
+        final int perThread = 1000;
+        final MutableStudentDB db = new MutableStudentDB();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    final Random random = new Random(thread);
+                    for (int i = 0; i < perThread; i++) {
+                        final int id = thread * perThread + i;
+                        db.add(random(random, id));
+                        db.update(random(random, id));
+                        if (i % 3 == 0) {
+                            db.remove(id);
+                        }
+                        // Queries run concurrently with changes
+                        db.getLargestGroup(db.students());
+                        db.findStudentsByFirstName(db.students(), FIRST_NAMES[0]);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        final Map<Integer, Student> expected = new TreeMap<>();
+        for (final Student student : db.students()) {
+            expected.put(student.getId(), student);
+        }
+        Assert.assertEquals(threads * (perThread - (perThread + 2) / 3), expected.size());
+        check(db, expected);
+    }
+
+    @Test
+    public void test_05_consistentReads() throws Exception {
+        // Students only transfer between groups, so every query sees all of them
+        final List<Student> students = roster(5, 1000, true);
+        final MutableStudentDB db = new MutableStudentDB(students);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(executor.submit(() -> {
+                    while (!stopped.get()) {
+                        Assert.assertEquals(students.size(), db.getGroupsByName(db.students()).stream()
+                                .mapToInt(group -> group.getStudents().size()).sum());
+                        Assert.assertEquals(students.size(), db.sortStudentsByName(db.students()).size());
+                        Assert.assertEquals(students.size(), new ArrayList<>(db.students()).size());
+                    }
+                    return null;
+                }));
+            }
+            final Random random = new Random(5);
+            for (int i = 0; i < 20_000; i++) {
+                final Student student = students.get(random.nextInt(students.size()));
+                db.update(random(random, student.getId()));
+            }
+            stopped.set(true);
+            for (final Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            stopped.set(true);
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
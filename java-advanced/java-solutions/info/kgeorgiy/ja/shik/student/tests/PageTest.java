@@ -0,0 +1,128 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.ja.shik.student.PagedGroup;
+import info.kgeorgiy.ja.shik.student.StudentDB;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PageTest extends BaseTest {
+    private static final StudentDB DB = new StudentDB();
+    // Many students are equal by these comparators, so results depend on stability
+    private static final List<Comparator<Student>> COMPARATORS = List.of(
+            Comparator.naturalOrder(),
+            ReferenceQuery.BY_NAME,
+            Comparator.comparing(Student::getFirstName),
+            Comparator.comparing(Student::getGroup).reversed(),
+            (a, b) -> 0
+    );
+
+    private static List<Student> sorted(final List<Student> students, final Comparator<Student> comparator) {
+        return students.stream().sorted(comparator).collect(Collectors.toList());
+    }
+
+    private static List<Student> sublist(final List<Student> sorted, final int offset, final int limit) {
+        final int from = Math.min(offset, sorted.size());
+        return sorted.subList(from, (int) Math.min(sorted.size(), (long) from + limit));
+    }
+
+    private static int[] bounds(final int size) {
+        return new int[]{0, 1, 2, size / 3, size - 1, size, size + 10, Integer.MAX_VALUE};
+    }
+
+    @Test
+    public void test_01_topK() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, false);
+            for (final Comparator<Student> comparator : COMPARATORS) {
+                final List<Student> sorted = sorted(students, comparator);
+                for (final int k : bounds(size)) {
+                    if (k >= 0) {
+                        Assert.assertEquals(size + " " + k, sublist(sorted, 0, k), DB.topK(students, comparator, k));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_02_page() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, false);
+            for (final Comparator<Student> comparator : COMPARATORS) {
+                final List<Student> sorted = sorted(students, comparator);
+                for (final int offset : bounds(size)) {
+                    for (final int limit : bounds(size)) {
+                        if (offset >= 0 && limit >= 0) {
+                            Assert.assertEquals(size + " " + offset + " " + limit, sublist(sorted, offset, limit),
+                                    DB.page(students, comparator, offset, limit));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_03_invalidBounds() {
+        final List<Student> students = roster(3, 10, true);
+        for (final Runnable query : List.<Runnable>of(
+                () -> DB.topK(students, Comparator.naturalOrder(), -1),
+                () -> DB.page(students, Comparator.naturalOrder(), -1, 1),
+                () -> DB.page(students, Comparator.naturalOrder(), 1, -1)
+        )) {
+            try {
+                query.run();
+                Assert.fail("Negative bound accepted");
+            } catch (final IllegalArgumentException ignored) {
+                // Expected
+            }
+        }
+    }
+
+    private static void checkPages(final PagedGroup paged, final Group group) {
+        final List<Student> sorted = group.getStudents();
+        for (final int offset : bounds(sorted.size())) {
+            for (final int limit : bounds(sorted.size())) {
+                if (offset >= 0 && limit >= 0) {
+                    Assert.assertEquals(sublist(sorted, offset, limit), paged.page(offset, limit));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_04_pagedGroups() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, false);
+            final List<Group> groups = REFERENCE.getGroupsByName(students);
+            final List<PagedGroup> paged = DB.getPagedGroupsByName(students);
+            Assert.assertEquals(groups.stream().map(Group::getName).collect(Collectors.toList()),
+                    paged.stream().map(PagedGroup::getName).collect(Collectors.toList()));
+            for (int i = 0; i < groups.size(); i++) {
+                Assert.assertEquals(groups.get(i).getStudents().size(), paged.get(i).size());
+                // Pages are selected by heap before the group is sorted and taken from sorted list after it
+                checkPages(paged.get(i), groups.get(i));
+                Assert.assertEquals(groups.get(i), paged.get(i).toGroup());
+                checkPages(paged.get(i), groups.get(i));
+                paged.get(i).toGroup().getStudents().clear();
+                Assert.assertEquals(groups.get(i), paged.get(i).toGroup());
+            }
+        }
+    }
+
+    @Test
+    public void test_05_pagesAreCopies() {
+        final List<Student> students = roster(5, 50, true);
+        final List<Student> page = DB.page(students, Comparator.naturalOrder(), 10, 10);
+        page.clear();
+        Assert.assertEquals(new ArrayList<>(sorted(students, Comparator.naturalOrder()).subList(10, 20)),
+                DB.page(students, Comparator.naturalOrder(), 10, 10));
+    }
+}
@@ -0,0 +1,138 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.ja.shik.student.StudentQueryPlan;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+public class QueryPlanTest extends BaseTest {
+    private static final Map<StudentQueryPlan.Key, Comparator<Student>> COMPARATORS = Map.of(
+            StudentQueryPlan.Key.ID, Comparator.comparingInt(Student::getId),
+            StudentQueryPlan.Key.FIRST_NAME, Comparator.comparing(Student::getFirstName),
+            StudentQueryPlan.Key.LAST_NAME, Comparator.comparing(Student::getLastName),
+            StudentQueryPlan.Key.GROUP, Comparator.comparing(Student::getGroup)
+    );
+    private static final List<Predicate<Student>> FILTERS = List.of(
+            student -> student.getId() % 2 == 0,
+            student -> student.getFirstName().compareTo(FIRST_NAMES[3]) < 0,
+            student -> student.getGroup() != GroupName.values()[1]
+    );
+
+    /**
+     * Random plan together with equivalent stream query.
+     */
+    private static final class Query {
+        private final StudentQueryPlan plan;
+        private final Predicate<Student> filter;
+        private final Comparator<Student> comparator;
+        private final int limit;
+        private final String description;
+
+        private Query(final Random random) {
+            final StudentQueryPlan.Builder builder = StudentQueryPlan.builder();
+            final StringBuilder description = new StringBuilder();
+            Predicate<Student> filter = student -> true;
+            for (int i = 0; i < FILTERS.size(); i++) {
+                if (random.nextBoolean()) {
+                    builder.where(FILTERS.get(i));
+                    filter = filter.and(FILTERS.get(i));
+                    description.append("where ").append(i).append(' ');
+                }
+            }
+            Comparator<Student> comparator = (a, b) -> 0;
+            final List<StudentQueryPlan.Key> keys = new ArrayList<>(COMPARATORS.keySet());
+            Collections.shuffle(keys, random);
+            for (final StudentQueryPlan.Key key : keys.subList(0, random.nextInt(keys.size() + 1))) {
+                final boolean descending = random.nextBoolean();
+                if (descending) {
+                    builder.orderBy(key, true);
+                } else {
+                    builder.orderBy(key);
+                }
+                comparator = comparator.thenComparing(descending ? COMPARATORS.get(key).reversed() : COMPARATORS.get(key));
+                description.append("order ").append(key).append(descending ? " desc " : " ");
+            }
+            limit = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(20);
+            if (limit != Integer.MAX_VALUE) {
+                builder.limit(limit);
+                description.append("limit ").append(limit);
+            }
+            plan = builder.build();
+            this.filter = filter;
+            this.comparator = comparator;
+            this.description = description.toString();
+        }
+
+        private List<Student> execute(final List<Student> students) {
+            return students.stream().filter(filter).sorted(comparator).limit(limit).collect(Collectors.toList());
+        }
+
+        private List<Group> executeGroups(final List<Student> students) {
+            return new TreeMap<>(students.stream().filter(filter).collect(Collectors.groupingBy(Student::getGroup)))
+                    .entrySet().stream()
+                    .map(entry -> new Group(entry.getKey(), entry.getValue().stream()
+                            .sorted(comparator).limit(limit).collect(Collectors.toList())))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void check(final Function<Query, Object> expected, final Function<Query, Object> actual) {
+        final Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            final Query query = new Query(random);
+            Assert.assertEquals(query.description, expected.apply(query), actual.apply(query));
+        }
+    }
+
+    @Test
+    public void test_01_execute() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, false);
+            check(query -> query.execute(students), query -> query.plan.execute(students));
+        }
+    }
+
+    @Test
+    public void test_02_executeGroups() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, false);
+            check(query -> query.executeGroups(students), query -> query.plan.executeGroups(students));
+        }
+    }
+
+    @Test
+    public void test_03_emptyPlan() {
+        final List<Student> students = roster(3, 100, false);
+        Assert.assertEquals(students, StudentQueryPlan.builder().build().execute(students));
+        Assert.assertEquals(REFERENCE.getGroupsByName(students), StudentQueryPlan.builder()
+                .orderBy(StudentQueryPlan.Key.LAST_NAME, true)
+                .orderBy(StudentQueryPlan.Key.FIRST_NAME, true)
+                .orderBy(StudentQueryPlan.Key.ID)
+                .build().executeGroups(students));
+    }
+
+    @Test
+    public void test_04_builderReuse() {
+        // Plans don't change, when their builder is changed after build
+        final List<Student> students = roster(4, 100, true);
+        final StudentQueryPlan.Builder builder = StudentQueryPlan.builder().orderBy(StudentQueryPlan.Key.ID);
+        final StudentQueryPlan plan = builder.build();
+        final List<Student> expected = plan.execute(students);
+        builder.where(FILTERS.get(0)).orderBy(StudentQueryPlan.Key.FIRST_NAME).limit(3);
+        Assert.assertEquals(expected, plan.execute(students));
+        Assert.assertEquals(REFERENCE.sortStudentsById(students), expected);
+        Assert.assertEquals(3, builder.build().execute(students).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_05_negativeLimit() {
+        StudentQueryPlan.builder().limit(-1);
+    }
+}
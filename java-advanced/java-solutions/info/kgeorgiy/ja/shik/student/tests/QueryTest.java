@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.ja.shik.student.IndexedStudentDB;
+import info.kgeorgiy.ja.shik.student.MutableStudentDB;
+import info.kgeorgiy.ja.shik.student.ParallelStudentDB;
+import info.kgeorgiy.ja.shik.student.StudentDB;
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class QueryTest extends BaseTest {
+    private static final BiFunction<AdvancedQuery, List<Student>, Collection<Student>> ROSTER =
+            (query, students) -> students;
+
+    private final Function<List<Student>, AdvancedQuery> factory;
+    private final BiFunction<AdvancedQuery, List<Student>, Collection<Student>> view;
+
+    /**
+     * @param name    database name
+     * @param factory database for given roster
+     * @param view    collection, that makes database answer queries over the roster from its indexes
+     */
+    public QueryTest(final String name, final Function<List<Student>, AdvancedQuery> factory,
+                     final BiFunction<AdvancedQuery, List<Student>, Collection<Student>> view) {
+        this.factory = factory;
+        this.view = view;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> databases() {
+        return Arrays.asList(new Object[][]{
+                {"StudentDB", (Function<List<Student>, AdvancedQuery>) students -> new StudentDB(), ROSTER},
+                {"IndexedStudentDB", (Function<List<Student>, AdvancedQuery>) IndexedStudentDB::new, ROSTER},
+                {"ParallelStudentDB",
+                        (Function<List<Student>, AdvancedQuery>) students -> new ParallelStudentDB(2), ROSTER},
+                {"MutableStudentDB", (Function<List<Student>, AdvancedQuery>) QueryTest::mutable,
+                        (BiFunction<AdvancedQuery, List<Student>, Collection<Student>>)
+                                (query, students) -> ((MutableStudentDB) query).students()},
+        });
+    }
+
+    /**
+     * Returns mutable database with the first of students with equal ids.
+     */
+    private static MutableStudentDB mutable(final List<Student> students) {
+        final MutableStudentDB db = new MutableStudentDB();
+        students.forEach(db::add);
+        return db;
+    }
+
+    /**
+     * Checks queries over roster view of database, built for {@code students}.
+     */
+    private void check(final List<Student> students) {
+        final AdvancedQuery query = factory.apply(students);
+        final Collection<Student> roster = view.apply(query, students);
+        checkQueries(query, new ArrayList<>(roster), roster);
+    }
+
+    @Test
+    public void test_01_queries() {
+        for (final int size : SIZES) {
+            final List<Student> students = roster(size, size, true);
+            check(students);
+            final AdvancedQuery query = factory.apply(students);
+            if (query instanceof IndexedStudentDB) {
+                checkRoster((IndexedStudentDB) query, students);
+            }
+        }
+    }
+
+    private static void checkRoster(final IndexedStudentDB db, final List<Student> students) {
+        Assert.assertEquals(REFERENCE.sortStudentsById(students), db.sortStudentsById());
+        Assert.assertEquals(REFERENCE.sortStudentsByName(students), db.sortStudentsByName());
+        for (final String name : new String[]{FIRST_NAMES[1], "Nobody", null}) {
+            Assert.assertEquals(REFERENCE.findStudentsByFirstName(students, name), db.findStudentsByFirstName(name));
+            Assert.assertEquals(REFERENCE.findStudentsByLastName(students, name), db.findStudentsByLastName(name));
+        }
+        for (final GroupName group : GroupName.values()) {
+            Assert.assertEquals(REFERENCE.findStudentsByGroup(students, group), db.findStudentsByGroup(group));
+            Assert.assertEquals(REFERENCE.getGroupsById(REFERENCE.findStudentsByGroup(students, group)).stream()
+                            .flatMap(g -> g.getStudents().stream()).collect(Collectors.toList()),
+                    db.findStudentsByGroupById(group));
+            Assert.assertEquals(REFERENCE.findStudentNamesByGroup(students, group), db.findStudentNamesByGroup(group));
+        }
+    }
+
+    @Test
+    public void test_02_repeatedIds() {
+        // Students with equal ids are ordered by names and then by input order
+        for (final int size : SIZES) {
+            check(roster(size + 1, size, false));
+        }
+    }
+
+    @Test
+    public void test_03_otherCollection() {
+        // Database built for one roster answers queries for another one
+        final List<Student> students = roster(4, 100, true);
+        final AdvancedQuery query = factory.apply(roster(5, 100, true));
+        checkQueries(query, students, students);
+    }
+
+    @Test
+    public void test_04_mutableResults() {
+        final List<Student> roster = roster(6, 50, true);
+        final AdvancedQuery query = factory.apply(roster);
+        final Collection<Student> students = view.apply(query, roster);
+        query.sortStudentsById(students).clear();
+        query.sortStudentsByName(students).clear();
+        query.findStudentsByFirstName(students, FIRST_NAMES[0]).clear();
+        query.findStudentsByGroup(students, roster.get(0).getGroup()).clear();
+        query.findStudentNamesByGroup(students, roster.get(0).getGroup()).clear();
+        query.getGroupsByName(students).clear();
+        for (final Group group : query.getGroupsById(students)) {
+            group.getStudents().clear();
+        }
+        checkQueries(query, new ArrayList<>(students), students);
+    }
+
+    @Test
+    public void test_05_emptyRoster() {
+        final AdvancedQuery query = factory.apply(List.of());
+        final Collection<Student> students = view.apply(query, List.of());
+        Assert.assertEquals("", query.getMostPopularName(students));
+        Assert.assertEquals("", query.getMaxStudentFirstName(List.of()));
+        Assert.assertNull(query.getLargestGroup(students));
+        Assert.assertEquals(List.of(), query.getGroupsByName(students));
+    }
+}
@@ -0,0 +1,169 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Straightforward implementation of queries by sorting and grouping whole collections, used as expected results.
+ */
+public class ReferenceQuery implements AdvancedQuery {
+    public static final Comparator<Student> BY_NAME = Comparator.comparing(Student::getLastName)
+            .thenComparing(Student::getFirstName).reversed()
+            .thenComparing(Student::getId);
+
+    private static List<Group> groups(final Collection<Student> students, final Comparator<Student> order) {
+        return new TreeMap<>(students.stream().collect(Collectors.groupingBy(Student::getGroup))).entrySet().stream()
+                .map(entry -> new Group(entry.getKey(), sorted(entry.getValue(), order)))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Student> sorted(final Collection<Student> students, final Comparator<Student> order) {
+        return students.stream().sorted(order).collect(Collectors.toList());
+    }
+
+    private static <T> List<T> map(final Collection<Student> students, final Function<Student, T> getter) {
+        return students.stream().map(getter).collect(Collectors.toList());
+    }
+
+    private static String fullName(final Student student) {
+        return student.getFirstName() + " " + student.getLastName();
+    }
+
+    private static <T> List<Student> find(final Collection<Student> students, final Function<Student, T> getter,
+                                          final T value) {
+        return sorted(students.stream().filter(s -> Objects.equals(value, getter.apply(s)))
+                .collect(Collectors.toList()), BY_NAME);
+    }
+
+    private static <T> List<T> byIndices(final Collection<Student> students, final int[] indices,
+                                         final Function<Student, T> getter) {
+        final List<T> values = map(students, getter);
+        return Arrays.stream(indices).mapToObj(values::get).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return groups(students, BY_NAME);
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return groups(students, Comparator.naturalOrder());
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return students.stream().collect(Collectors.groupingBy(Student::getGroup, Collectors.counting()))
+                .entrySet().stream()
+                .max(Map.Entry.<GroupName, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey).orElse(null);
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        return students.stream().collect(Collectors.groupingBy(Student::getGroup,
+                        Collectors.mapping(Student::getFirstName, Collectors.toSet())))
+                .entrySet().stream()
+                .max(Comparator.comparingInt((Map.Entry<GroupName, Set<String>> e) -> e.getValue().size())
+                        .thenComparing(Map.Entry.<GroupName, Set<String>>comparingByKey().reversed()))
+                .map(Map.Entry::getKey).orElse(null);
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return students.stream().collect(Collectors.groupingBy(Student::getFirstName,
+                        Collectors.mapping(Student::getGroup, Collectors.toSet())))
+                .entrySet().stream()
+                .max(Comparator.comparingInt((Map.Entry<String, Set<GroupName>> e) -> e.getValue().size())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey).orElse("");
+    }
+
+    @Override
+    public List<String> getFirstNames(final List<Student> students) {
+        return map(students, Student::getFirstName);
+    }
+
+    @Override
+    public List<String> getLastNames(final List<Student> students) {
+        return map(students, Student::getLastName);
+    }
+
+    @Override
+    public List<GroupName> getGroups(final List<Student> students) {
+        return map(students, Student::getGroup);
+    }
+
+    @Override
+    public List<String> getFullNames(final List<Student> students) {
+        return map(students, ReferenceQuery::fullName);
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(final List<Student> students) {
+        return new TreeSet<>(getFirstNames(students));
+    }
+
+    @Override
+    public String getMaxStudentFirstName(final List<Student> students) {
+        return students.stream().max(Comparator.naturalOrder()).map(Student::getFirstName).orElse("");
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return sorted(students, Comparator.naturalOrder());
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return sorted(students, BY_NAME);
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        return find(students, Student::getFirstName, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        return find(students, Student::getLastName, name);
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return find(students, Student::getGroup, group);
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        return findStudentsByGroup(students, group).stream().collect(Collectors.toMap(
+                Student::getLastName, Student::getFirstName, BinaryOperator.minBy(String::compareTo)));
+    }
+
+    @Override
+    public List<String> getFirstNames(final Collection<Student> students, final int[] indices) {
+        return byIndices(students, indices, Student::getFirstName);
+    }
+
+    @Override
+    public List<String> getLastNames(final Collection<Student> students, final int[] indices) {
+        return byIndices(students, indices, Student::getLastName);
+    }
+
+    @Override
+    public List<GroupName> getGroups(final Collection<Student> students, final int[] indices) {
+        return byIndices(students, indices, Student::getGroup);
+    }
+
+    @Override
+    public List<String> getFullNames(final Collection<Student> students, final int[] indices) {
+        return byIndices(students, indices, ReferenceQuery::fullName);
+    }
+}
@@ -0,0 +1,19 @@
+package info.kgeorgiy.ja.shik.student.tests;
+
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+
+public class StudentTests {
+
+    public static void main(final String[] args) {
+        final JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.err));
+        System.exit(junit.run(
+                QueryTest.class,
+                ColumnarTest.class,
+                MutableTest.class,
+                PageTest.class,
+                QueryPlanTest.class
+        ).wasSuccessful() ? 0 : 1);
+    }
+}
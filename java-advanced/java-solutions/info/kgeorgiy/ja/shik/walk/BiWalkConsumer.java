@@ -3,6 +3,22 @@ package info.kgeorgiy.ja.shik.walk;
 import java.io.IOException;
 
 @FunctionalInterface
-public interface BiWalkConsumer<T, U> {
+public interface BiWalkConsumer<T, U> extends AutoCloseable {
     void accept(T t, U u) throws IOException;
+
+    /**
+     * Called once after all inputs are accepted. Does nothing by default.
+     *
+     * @param u output, that was passed to {@link #accept(Object, Object)}
+     * @throws IOException if output cannot be written
+     */
+    default void complete(U u) throws IOException {
+    }
+
+    /**
+     * Releases resources held by consumer. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
 }
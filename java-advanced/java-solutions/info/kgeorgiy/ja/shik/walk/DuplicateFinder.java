@@ -0,0 +1,185 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Finds groups of files with equal content among all walked files.
+ * Candidates are narrowed down in stages, so most files are never read:
+ * <ol>
+ *     <li>files are grouped by size, known from directory traversal;</li>
+ *     <li>files with equal size are grouped by hash of their first and last {@value #PARTIAL_SIZE} bytes;
+ *     files not longer than {@code 2 * PARTIAL_SIZE} bytes skip this stage, as it would read them entirely;</li>
+ *     <li>files with equal partial hash are grouped by full hash;</li>
+ *     <li>unless full hash is {@link HashAlgorithm#SHA256}, files with equal full hash are compared byte by byte,
+ *     as weaker hashes have practical collisions.</li>
+ * </ol>
+ * Each group of duplicates is written as consecutive records with the same hash,
+ * groups are ordered by their first file name.
+ */
+class DuplicateFinder implements BiWalkConsumer<String, HashWriter> {
+    static final int PARTIAL_SIZE = 64 * 1024;
+    private static final int COMPARE_BUFFER_SIZE = 1 << 16;
+
+    private final FileHasher hasher;
+    private final Set<Path> visited = new HashSet<>();
+    private final Map<Long, List<Candidate>> bySize = new HashMap<>();
+
+    /**
+     * Constructs finder, that computes full hashes with given {@code hasher}.
+     *
+     * @param hasher hasher of duplicate candidates
+     */
+    DuplicateFinder(final FileHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    /**
+     * Collects regular files found in {@code root}. Nothing is written until {@link #complete(HashWriter)}.
+     *
+     * @param root   file or directory to walk
+     * @param writer output for duplicate groups
+     * @throws IOException if {@code root} cannot be read
+     */
+    @Override
+    public void accept(final String root, final HashWriter writer) throws IOException {
+        final Path start = Path.of(root);
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && visited.add(file.toAbsolutePath().normalize())) {
+                    bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(new Candidate(file, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+                if (file.equals(start)) {
+                    throw exc;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Writes all found groups of duplicates.
+     *
+     * @param writer output for duplicate groups
+     * @throws IOException if output cannot be written
+     */
+    @Override
+    public void complete(final HashWriter writer) throws IOException {
+        final List<List<Candidate>> duplicates = new ArrayList<>();
+        final boolean compare = hasher.getAlgorithm() != HashAlgorithm.SHA256;
+        for (final Map.Entry<Long, List<Candidate>> sameSize : bySize.entrySet()) {
+            final List<List<Candidate>> samePartial = sameSize.getKey() <= 2L * PARTIAL_SIZE
+                    ? List.of(sameSize.getValue())
+                    : split(sameSize.getValue(), c -> hasher.tryHashEnds(c.file, PARTIAL_SIZE));
+            for (final List<Candidate> candidates : samePartial) {
+                for (final List<Candidate> sameHash : split(candidates, c -> c.hash = hasher.tryHash(c.file, c.attrs))) {
+                    if (compare) {
+                        duplicates.addAll(splitByContent(sameHash));
+                    } else {
+                        duplicates.add(sameHash);
+                    }
+                }
+            }
+        }
+        duplicates.forEach(group -> group.sort(Comparator.comparing(c -> c.file)));
+        duplicates.sort(Comparator.comparing(group -> group.get(0).file));
+        for (final List<Candidate> group : duplicates) {
+            for (final Candidate candidate : group) {
+                writer.write(candidate.file.toString(), candidate.hash);
+            }
+        }
+    }
+
+    private static List<List<Candidate>> split(final List<Candidate> candidates,
+                                               final Function<Candidate, byte[]> hashFunction) {
+        if (candidates.size() < 2) {
+            return List.of();
+        }
+        final Map<ByteBuffer, List<Candidate>> byHash = new HashMap<>();
+        for (final Candidate candidate : candidates) {
+            final byte[] hash = hashFunction.apply(candidate);
+            if (hash != null) {
+                byHash.computeIfAbsent(ByteBuffer.wrap(hash), h -> new ArrayList<>()).add(candidate);
+            }
+        }
+        final List<List<Candidate>> groups = new ArrayList<>();
+        for (final List<Candidate> group : byHash.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Splits {@code candidates} into groups of files with equal content by comparing them with first file of each group.
+     * Files, that cannot be read, are dropped.
+     */
+    private static List<List<Candidate>> splitByContent(final List<Candidate> candidates) {
+        final List<List<Candidate>> groups = new ArrayList<>();
+        for (final Candidate candidate : candidates) {
+            try {
+                List<Candidate> same = null;
+                for (final List<Candidate> group : groups) {
+                    if (sameContent(group.get(0).file, candidate.file)) {
+                        same = group;
+                        break;
+                    }
+                }
+                if (same == null) {
+                    same = new ArrayList<>();
+                    groups.add(same);
+                }
+                same.add(candidate);
+            } catch (final IOException e) {
+                // Unreadable files are not reported as duplicates
+            }
+        }
+        groups.removeIf(group -> group.size() < 2);
+        return groups;
+    }
+
+    private static boolean sameContent(final Path a, final Path b) throws IOException {
+        try (final InputStream inA = Files.newInputStream(a); final InputStream inB = Files.newInputStream(b)) {
+            final byte[] bufferA = new byte[COMPARE_BUFFER_SIZE];
+            final byte[] bufferB = new byte[COMPARE_BUFFER_SIZE];
+            while (true) {
+                final int read = inA.readNBytes(bufferA, 0, bufferA.length);
+                if (inB.readNBytes(bufferB, 0, read) != read) {
+                    return false;
+                }
+                if (read == 0) {
+                    return inB.read() < 0;
+                }
+                if (!Arrays.equals(bufferA, 0, read, bufferB, 0, read)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static class Candidate {
+        private final Path file;
+        private final BasicFileAttributes attrs;
+        private byte[] hash;
+
+        private Candidate(final Path file, final BasicFileAttributes attrs) {
+            this.file = file;
+            this.attrs = attrs;
+        }
+    }
+}
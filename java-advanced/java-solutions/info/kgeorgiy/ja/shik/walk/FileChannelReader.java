@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads file content through a {@link FileChannel} and passes it to a consumer chunk by chunk.
+ * Small files are read into a reusable direct buffer, big files are memory-mapped window by window.
+ * Mapped windows are unmapped only by garbage collector, so they are kept small: windows, that are waiting
+ * for collection during walk over many big files, don't exhaust address space.
+ * Instances own their buffer, so they are not thread-safe.
+ */
+class FileChannelReader {
+    static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    static final long DEFAULT_MAP_THRESHOLD = 1L << 26;
+    private static final long MAP_WINDOW = 1L << 24;
+
+    private final ByteBuffer buffer;
+    private final long mapThreshold;
+
+    /**
+     * Constructs reader with default buffer size and mapping threshold.
+     */
+    FileChannelReader() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAP_THRESHOLD);
+    }
+
+    /**
+     * Constructs reader with given buffer size and mapping threshold.
+     *
+     * @param bufferSize   size of direct buffer used for files smaller than {@code mapThreshold}
+     * @param mapThreshold minimal size of file, that should be memory-mapped instead of read
+     */
+    FileChannelReader(final int bufferSize, final long mapThreshold) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size should be >= 1");
+        }
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Reads whole {@code file} and passes its content to {@code consumer}.
+     * Each passed buffer contains next chunk of file between its position and limit
+     * and is valid only until {@code consumer} returns.
+     *
+     * @param file     file to read
+     * @param consumer consumer of file chunks
+     * @throws IOException if file cannot be opened or read
+     */
+    void read(final Path file, final Consumer<ByteBuffer> consumer) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size >= mapThreshold) {
+                map(channel, size, consumer);
+            } else {
+                read(channel, consumer);
+            }
+        }
+    }
+
+    /**
+     * Reads first and last {@code length} bytes of {@code file} and passes them to {@code consumer}.
+     * If file is not longer than {@code 2 * length} bytes, it is read entirely, each byte exactly once.
+     *
+     * @param file     file to read
+     * @param length   length of read prefix and suffix
+     * @param consumer consumer of file chunks
+     * @throws IOException if file cannot be opened or read
+     */
+    void readEnds(final Path file, final long length, final Consumer<ByteBuffer> consumer) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            read(channel, 0, Math.min(length, size), consumer);
+            read(channel, Math.max(length, size - length), size, consumer);
+        }
+    }
+
+    private void read(final FileChannel channel, long from, final long to, final Consumer<ByteBuffer> consumer)
+            throws IOException {
+        while (from < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - from));
+            final int read = channel.read(buffer, from);
+            if (read < 0) {
+                return;
+            }
+            from += read;
+            buffer.flip();
+            consumer.accept(buffer);
+        }
+    }
+
+    private void read(final FileChannel channel, final Consumer<ByteBuffer> consumer) throws IOException {
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            consumer.accept(buffer);
+            buffer.clear();
+        }
+    }
+
+    private static void map(final FileChannel channel, final long size, final Consumer<ByteBuffer> consumer)
+            throws IOException {
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+            consumer.accept(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position)));
+        }
+    }
+}
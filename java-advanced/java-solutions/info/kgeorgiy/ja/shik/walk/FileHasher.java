@@ -0,0 +1,108 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Computes hashes of files with given {@link HashAlgorithm}.
+ * If {@link HashCache} is given, unchanged regular files are not read.
+ * Instances are thread-safe: each thread reads files with its own {@link FileChannelReader}.
+ */
+class FileHasher {
+    private final HashAlgorithm algorithm;
+    private final HashCache cache;
+    private final ThreadLocal<FileChannelReader> reader;
+
+    /**
+     * Constructs hasher for given algorithm.
+     *
+     * @param algorithm hash algorithm
+     * @param cache     cache of previously computed hashes or {@code null}
+     */
+    FileHasher(final HashAlgorithm algorithm, final HashCache cache) {
+        this.algorithm = algorithm;
+        this.cache = cache;
+        reader = ThreadLocal.withInitial(FileChannelReader::new);
+    }
+
+    HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Computes hash of {@code file} content.
+     *
+     * @param file file to hash
+     * @return hash of file, or {@link HashAlgorithm#zero()} if file cannot be read
+     */
+    byte[] hash(final Path file) {
+        if (cache == null) {
+            return hash(file, null);
+        }
+        try {
+            return hash(file, Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (final IOException e) {
+            return algorithm.zero();
+        }
+    }
+
+    /**
+     * Computes hash of {@code file} content, using its already known attributes for cache lookup.
+     *
+     * @param file       file to hash
+     * @param attributes attributes of {@code file} or {@code null}, if cache shouldn't be used
+     * @return hash of file, or {@link HashAlgorithm#zero()} if file cannot be read
+     */
+    byte[] hash(final Path file, final BasicFileAttributes attributes) {
+        final byte[] hash = tryHash(file, attributes);
+        return hash == null ? algorithm.zero() : hash;
+    }
+
+    /**
+     * Computes hash of {@code file} content, using its already known attributes for cache lookup.
+     *
+     * @param file       file to hash
+     * @param attributes attributes of {@code file} or {@code null}, if cache shouldn't be used
+     * @return hash of file, or {@code null} if file cannot be read
+     */
+    byte[] tryHash(final Path file, final BasicFileAttributes attributes) {
+        final boolean cached = cache != null && attributes != null && attributes.isRegularFile();
+        if (cached) {
+            final byte[] hash = cache.get(file, attributes);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        final Hasher hasher = algorithm.newHasher();
+        try {
+            reader.get().read(file, hasher::update);
+        } catch (final IOException e) {
+            return null;
+        }
+        final byte[] hash = hasher.digest();
+        if (cached) {
+            cache.put(file, attributes, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Computes cheap {@link HashAlgorithm#XXHASH64} hash of first and last {@code length} bytes of {@code file}.
+     * Files not longer than {@code 2 * length} bytes are hashed entirely.
+     *
+     * @param file   file to hash
+     * @param length length of hashed prefix and suffix
+     * @return partial hash of file, or {@code null} if file cannot be read
+     */
+    byte[] tryHashEnds(final Path file, final long length) {
+        final Hasher hasher = HashAlgorithm.XXHASH64.newHasher();
+        try {
+            reader.get().readEnds(file, length, hasher::update);
+        } catch (final IOException e) {
+            return null;
+        }
+        return hasher.digest();
+    }
+}
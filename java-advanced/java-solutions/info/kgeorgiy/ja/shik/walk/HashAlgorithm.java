@@ -0,0 +1,115 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Hash functions supported by {@link Walk}.
+ */
+enum HashAlgorithm {
+    PJW("pjw", Long.BYTES, PJWHasher::new),
+    CRC32C("crc32c", Integer.BYTES, () -> new ChecksumHasher(new CRC32C())),
+    XXHASH64("xxhash64", Long.BYTES, XXHash64Hasher::new),
+    SHA256("sha256", 32, () -> new DigestHasher("SHA-256"));
+
+    private final String name;
+    private final int size;
+    private final Supplier<Hasher> factory;
+
+    HashAlgorithm(final String name, final int size, final Supplier<Hasher> factory) {
+        this.name = name;
+        this.size = size;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns command line name of this algorithm.
+     *
+     * @return algorithm name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns hash size in bytes.
+     *
+     * @return hash size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates new {@link Hasher} of this algorithm.
+     *
+     * @return new hasher
+     */
+    Hasher newHasher() {
+        return factory.get();
+    }
+
+    /**
+     * Returns hash, that is reported for files that cannot be read.
+     *
+     * @return zero hash of {@link #size()} bytes
+     */
+    byte[] zero() {
+        return new byte[size];
+    }
+
+    /**
+     * Finds algorithm by its command line name.
+     *
+     * @param name algorithm name
+     * @return found algorithm or {@code null}, if there is no algorithm with such name
+     */
+    static HashAlgorithm forName(final String name) {
+        return Arrays.stream(values()).filter(algorithm -> algorithm.name.equals(name)).findAny().orElse(null);
+    }
+
+    private static class ChecksumHasher implements Hasher {
+        private final Checksum checksum;
+
+        private ChecksumHasher(final Checksum checksum) {
+            this.checksum = checksum;
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            checksum.update(buffer.duplicate());
+        }
+
+        @Override
+        public byte[] digest() {
+            return ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).array();
+        }
+    }
+
+    private static class DigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        private DigestHasher(final String algorithm) {
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(algorithm + " is not supported", e);
+            }
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            digest.update(buffer.duplicate());
+        }
+
+        @Override
+        public byte[] digest() {
+            return digest.digest();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file hashes keyed by absolute path.
+ * Cached hash is reused only if size, last modified time and file key of the file haven't changed.
+ * Only entries of files, that were requested during current run, are saved back.
+ */
+class HashCache {
+    private static final int MAGIC = 0x57414c4c;
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current;
+
+    private HashCache(final Path file, final HashAlgorithm algorithm, final Map<String, Entry> previous) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.previous = previous;
+        current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates empty cache, that will be saved to {@code file}.
+     *
+     * @param file      cache file
+     * @param algorithm hash algorithm of cached hashes
+     * @return empty cache
+     */
+    static HashCache empty(final Path file, final HashAlgorithm algorithm) {
+        return new HashCache(file, algorithm, new HashMap<>());
+    }
+
+    /**
+     * Loads cache from {@code file}. Missing file or file, written for another hash algorithm,
+     * produces empty cache.
+     *
+     * @param file      cache file
+     * @param algorithm hash algorithm of cached hashes
+     * @return loaded cache
+     * @throws IOException if cache file exists, but cannot be read
+     */
+    static HashCache load(final Path file, final HashAlgorithm algorithm) throws IOException {
+        final Map<String, Entry> entries = new HashMap<>();
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hash cache file: " + file);
+            }
+            if (algorithm.getName().equals(readString(in))) {
+                for (int count = in.readInt(); count > 0; count--) {
+                    final String path = readString(in);
+                    final long size = in.readLong();
+                    final long modified = in.readLong();
+                    final String fileKey = readString(in);
+                    final byte[] hash = new byte[algorithm.size()];
+                    in.readFully(hash);
+                    entries.put(path, new Entry(size, modified, fileKey, hash));
+                }
+            }
+        } catch (final NoSuchFileException ignored) {
+            //  no operations
+        }
+        return new HashCache(file, algorithm, entries);
+    }
+
+    private static String getKey(final Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns cached hash of {@code path}, if file hasn't changed since it was cached.
+     *
+     * @param path       hashed file
+     * @param attributes current attributes of {@code path}
+     * @return cached hash or {@code null}, if there is no actual hash in cache
+     */
+    byte[] get(final Path path, final BasicFileAttributes attributes) {
+        final String key = getKey(path);
+        Entry entry = current.get(key);
+        if (entry == null) {
+            entry = previous.get(key);
+        }
+        if (entry == null || !entry.matches(attributes)) {
+            return null;
+        }
+        current.putIfAbsent(key, entry);
+        return entry.hash;
+    }
+
+    /**
+     * Stores hash of {@code path} computed for given attributes.
+     *
+     * @param path       hashed file
+     * @param attributes attributes of {@code path} before hashing
+     * @param hash       hash of file content
+     */
+    void put(final Path path, final BasicFileAttributes attributes, final byte[] hash) {
+        current.put(getKey(path), new Entry(attributes, hash));
+    }
+
+    /**
+     * Rewrites cache file with entries of files, that were requested during current run.
+     *
+     * @throws IOException if cache file cannot be written
+     */
+    void save() throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                writeString(out, algorithm.getName());
+                out.writeInt(current.size());
+                for (final Map.Entry<String, Entry> entry : current.entrySet()) {
+                    writeString(out, entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes {@code s} as length-prefixed UTF-8, as paths could be longer, than {@link DataOutputStream#writeUTF} allows.
+     */
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final byte[] hash;
+
+        private Entry(final long size, final long modified, final String fileKey, final byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(final BasicFileAttributes attributes, final byte[] hash) {
+            this(attributes.size(), getModified(attributes), getFileKey(attributes), hash);
+        }
+
+        private static long getModified(final BasicFileAttributes attributes) {
+            return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        }
+
+        private static String getFileKey(final BasicFileAttributes attributes) {
+            return Objects.toString(attributes.fileKey(), "");
+        }
+
+        private boolean matches(final BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified == getModified(attributes)
+                    && fileKey.equals(getFileKey(attributes));
+        }
+
+        private void write(final DataOutputStream out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(modified);
+            writeString(out, fileKey);
+            out.write(hash);
+        }
+    }
+}
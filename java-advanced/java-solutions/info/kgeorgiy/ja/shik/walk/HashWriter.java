@@ -0,0 +1,177 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes file hashes to output file through a {@link FileChannel}.
+ * Records are encoded straight into a large direct buffer, that is written out only when full.
+ * Instances are not thread-safe.
+ */
+abstract class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private ByteBuffer buffer;
+
+    private HashWriter(final Path file) throws IOException {
+        channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Opens writer of text output: one line {@code <hex hash> <file>} per file.
+     *
+     * @param file output file
+     * @return opened writer
+     * @throws IOException if output file cannot be opened
+     */
+    static HashWriter text(final Path file) throws IOException {
+        return new Text(file);
+    }
+
+    /**
+     * Opens writer of binary output. Output starts with magic number, algorithm name and hash size,
+     * followed by records of hash bytes, UTF-8 length of file name and file name itself.
+     * All numbers are big-endian, algorithm name is written by {@link java.io.DataOutput#writeUTF(String)} rules.
+     *
+     * @param file      output file
+     * @param algorithm algorithm of written hashes
+     * @return opened writer
+     * @throws IOException if output file cannot be opened or header cannot be written
+     */
+    static HashWriter binary(final Path file, final HashAlgorithm algorithm) throws IOException {
+        final HashWriter writer = new Binary(file);
+        try {
+            writer.writeHeader(algorithm);
+        } catch (final IOException e) {
+            writer.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    /**
+     * Writes hash of {@code file}.
+     *
+     * @param file file name
+     * @param hash file hash
+     * @throws IOException if output cannot be written
+     */
+    abstract void write(String file, byte[] hash) throws IOException;
+
+    void writeHeader(final HashAlgorithm algorithm) throws IOException {
+    }
+
+    /**
+     * Ensures, that buffer has at least {@code size} free bytes, and returns it for writing of a record.
+     * Returned buffer is valid until the next call of this method.
+     */
+    protected ByteBuffer reserve(final int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns upper bound of UTF-8 encoded {@code s} length.
+     */
+    protected int maxEncodedLength(final String s) {
+        return (int) Math.ceil(s.length() * (double) encoder.maxBytesPerChar());
+    }
+
+    /**
+     * Encodes {@code s} to buffer. Space should be reserved by {@link #reserve(int)} beforehand.
+     */
+    protected void encode(final String s) {
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(s), buffer, true);
+        encoder.flush(buffer);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out buffered records and closes output file.
+     *
+     * @throws IOException if output cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    private static class Text extends HashWriter {
+        private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+        private Text(final Path file) throws IOException {
+            super(file);
+        }
+
+        @Override
+        void write(final String file, final byte[] hash) throws IOException {
+            final ByteBuffer buffer = reserve(2 * hash.length + 1 + maxEncodedLength(file) + LINE_SEPARATOR.length);
+            for (final byte b : hash) {
+                buffer.put(HEX_DIGITS[(b >> 4) & 0xf]);
+                buffer.put(HEX_DIGITS[b & 0xf]);
+            }
+            buffer.put((byte) ' ');
+            encode(file);
+            buffer.put(LINE_SEPARATOR);
+        }
+    }
+
+    private static class Binary extends HashWriter {
+        private static final int MAGIC = 0x57485348;
+
+        private Binary(final Path file) throws IOException {
+            super(file);
+        }
+
+        @Override
+        void writeHeader(final HashAlgorithm algorithm) throws IOException {
+            final byte[] name = algorithm.getName().getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer buffer = reserve(Integer.BYTES + Short.BYTES + name.length + Integer.BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            buffer.putInt(algorithm.size());
+        }
+
+        @Override
+        void write(final String file, final byte[] hash) throws IOException {
+            final ByteBuffer buffer = reserve(hash.length + Integer.BYTES + maxEncodedLength(file));
+            buffer.put(hash);
+            final int lengthPosition = buffer.position();
+            buffer.position(lengthPosition + Integer.BYTES);
+            encode(file);
+            buffer.putInt(lengthPosition, buffer.position() - lengthPosition - Integer.BYTES);
+        }
+    }
+}
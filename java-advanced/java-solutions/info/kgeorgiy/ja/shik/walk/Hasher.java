@@ -0,0 +1,23 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash function state.
+ */
+interface Hasher {
+    /**
+     * Feeds bytes between position and limit of {@code buffer} to hash function.
+     * Position and limit of {@code buffer} are left unchanged.
+     *
+     * @param buffer next chunk of hashed data
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Returns hash of all fed bytes in big-endian order.
+     *
+     * @return hash value
+     */
+    byte[] digest();
+}
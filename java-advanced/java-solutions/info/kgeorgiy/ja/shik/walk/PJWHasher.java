@@ -0,0 +1,33 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64-bit version of <a href="https://en.wikipedia.org/wiki/PJW_hash_function">PJW</a> hash function.
+ */
+class PJWHasher implements Hasher {
+    private static final long HIGH_BITS_MASK = 0xff00_0000_0000_0000L;
+    private static final int LOW_BITS_MASK = 0xff;
+    private static final int BITS = 64;
+
+    private long h;
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        long h = this.h;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            h = (h << 8) + (buffer.get(i) & LOW_BITS_MASK);
+            final long high = h & HIGH_BITS_MASK;
+            if (high != 0) {
+                h ^= high >> (3 * BITS / 4);
+                h &= ~high;
+            }
+        }
+        this.h = h;
+    }
+
+    @Override
+    public byte[] digest() {
+        return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+    }
+}
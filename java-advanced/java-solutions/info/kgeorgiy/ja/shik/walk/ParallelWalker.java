@@ -0,0 +1,259 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursive walker, that lists directories and hashes files in a {@link ForkJoinPool}.
+ * Entries of each directory are printed in sorted order, so output doesn't depend on scheduling.
+ * As in sequential {@link RecursiveWalk}, symbolic links are hashed as files, unless they are followed:
+ * then links, that lead to own ancestor, are reported with zero hash.
+ * <p>
+ * Files of a directory are hashed in batches of {@value #FILE_BATCH}. Tasks are started in output order
+ * and at most {@value #WINDOW_PER_THREAD} tasks per thread are started, but not written yet,
+ * so memory doesn't grow with size of walked tree.
+ */
+class ParallelWalker implements BiWalkConsumer<String, HashWriter> {
+    private static final int FILE_BATCH = 64;
+    private static final int WINDOW_PER_THREAD = 16;
+
+    private final FileHasher hasher;
+    private final ForkJoinPool pool;
+    private final int window;
+    private final LinkOption[] linkOptions;
+
+    /**
+     * Constructs walker with given parallelism.
+     *
+     * @param hasher      thread-safe hasher of found files
+     * @param threads     maximum number of threads listing directories and hashing files
+     * @param followLinks whether symbolic links to directories are walked
+     */
+    ParallelWalker(final FileHasher hasher, final int threads, final boolean followLinks) {
+        this.hasher = hasher;
+        pool = new ForkJoinPool(threads);
+        window = threads * WINDOW_PER_THREAD;
+        linkOptions = followLinks ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+    }
+
+    /**
+     * Walks {@code root} and prints hashes of all found files in deterministic order.
+     * Results are printed as soon as all preceding entries are processed.
+     *
+     * @param root   file or directory to walk
+     * @param writer output for hashes
+     * @throws IOException if {@code root} attributes cannot be read or output cannot be written
+     */
+    @Override
+    public void accept(final String root, final HashWriter writer) throws IOException {
+        final Path path = Path.of(root);
+        final Deque<Pending> pending = new ArrayDeque<>();
+        final BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, linkOptions);
+        pending.push(new Pending(visit(path, attrs, null)));
+        int started = 0;
+        while (!pending.isEmpty()) {
+            for (final Iterator<Pending> it = pending.iterator(); started < window && it.hasNext(); ) {
+                final Pending next = it.next();
+                if (!next.started) {
+                    next.started = true;
+                    pool.execute(next.task);
+                    started++;
+                }
+            }
+            final Pending first = pending.pop();
+            started--;
+            first.task.join().write(writer, pending);
+        }
+    }
+
+    /**
+     * Shuts down the pool, waiting for running tasks.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                pool.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ForkJoinTask<Node> visit(final Path path, final BasicFileAttributes attrs, final Ancestor ancestors) {
+        if (!attrs.isDirectory()) {
+            return hash(List.of(new FileEntry(path, attrs)));
+        }
+        final Object key = getKey(path, attrs);
+        if (key == null || Ancestor.contains(ancestors, key)) {
+            return hash(List.of(new FileEntry(path, null)));
+        }
+        return new DirectoryTask(path, new Ancestor(key, ancestors));
+    }
+
+    /**
+     * Returns task, that hashes {@code files}. Files without attributes are reported with zero hash.
+     */
+    private ForkJoinTask<Node> hash(final List<FileEntry> files) {
+        return ForkJoinTask.adapt(() -> {
+            final List<Path> paths = new ArrayList<>(files.size());
+            final List<byte[]> hashes = new ArrayList<>(files.size());
+            for (final FileEntry file : files) {
+                paths.add(file.path);
+                hashes.add(file.attrs == null ? hasher.getAlgorithm().zero() : hasher.hash(file.path, file.attrs));
+            }
+            return new FilesNode(paths, hashes);
+        });
+    }
+
+    private static Object getKey(final Path directory, final BasicFileAttributes attrs) {
+        if (attrs.fileKey() != null) {
+            return attrs.fileKey();
+        }
+        try {
+            return directory.toRealPath();
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static class FileEntry {
+        private final Path path;
+        private final BasicFileAttributes attrs;
+
+        private FileEntry(final Path path, final BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+    }
+
+    private static class Pending {
+        private final ForkJoinTask<Node> task;
+        private boolean started;
+
+        private Pending(final ForkJoinTask<Node> task) {
+            this.task = task;
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 8437096253719461823L;
+
+        private final Path directory;
+        private final Ancestor ancestors;
+
+        private DirectoryTask(final Path directory, final Ancestor ancestors) {
+            this.directory = directory;
+            this.ancestors = ancestors;
+        }
+
+        /**
+         * Lists directory and returns not started tasks for its entries: batches of consecutive files
+         * and subdirectories.
+         */
+        @Override
+        protected Node compute() {
+            final List<Path> entries = new ArrayList<>();
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                stream.forEach(entries::add);
+            } catch (final IOException | DirectoryIteratorException e) {
+                return new FilesNode(List.of(directory), List.of(hasher.getAlgorithm().zero()));
+            }
+            Collections.sort(entries);
+            final List<ForkJoinTask<Node>> children = new ArrayList<>();
+            List<FileEntry> files = new ArrayList<>();
+            for (final Path entry : entries) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, linkOptions);
+                } catch (final IOException e) {
+                    attrs = null;
+                }
+                if (attrs != null && attrs.isDirectory()) {
+                    if (!files.isEmpty()) {
+                        children.add(hash(files));
+                        files = new ArrayList<>();
+                    }
+                    children.add(visit(entry, attrs, ancestors));
+                } else {
+                    files.add(new FileEntry(entry, attrs));
+                    if (files.size() == FILE_BATCH) {
+                        children.add(hash(files));
+                        files = new ArrayList<>();
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                children.add(hash(files));
+            }
+            return new DirectoryNode(children);
+        }
+    }
+
+    private interface Node {
+        void write(HashWriter writer, Deque<Pending> pending) throws IOException;
+    }
+
+    private static class FilesNode implements Node {
+        private final List<Path> files;
+        private final List<byte[]> hashes;
+
+        private FilesNode(final List<Path> files, final List<byte[]> hashes) {
+            this.files = files;
+            this.hashes = hashes;
+        }
+
+        @Override
+        public void write(final HashWriter writer, final Deque<Pending> pending) throws IOException {
+            for (int i = 0; i < files.size(); i++) {
+                writer.write(files.get(i).toString(), hashes.get(i));
+            }
+        }
+    }
+
+    private static class DirectoryNode implements Node {
+        private final List<ForkJoinTask<Node>> children;
+
+        private DirectoryNode(final List<ForkJoinTask<Node>> children) {
+            this.children = children;
+        }
+
+        @Override
+        public void write(final HashWriter writer, final Deque<Pending> pending) {
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(new Pending(children.get(i)));
+            }
+        }
+    }
+
+    private static class Ancestor {
+        private final Object key;
+        private final Ancestor parent;
+
+        private Ancestor(final Object key, final Ancestor parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+
+        private static boolean contains(Ancestor ancestor, final Object key) {
+            for (; ancestor != null; ancestor = ancestor.parent) {
+                if (ancestor.key.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,26 +1,49 @@
 package info.kgeorgiy.ja.shik.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class RecursiveWalk {
 
-    private static void processFileOrDirectory(Path file, BufferedWriter outputFileWriter) throws IOException {
-        Files.walkFileTree(file, new SimpleFileVisitor<>() {
+    private static void processFileOrDirectory(Path file, HashWriter outputFileWriter, FileHasher hasher,
+                                               boolean followLinks) throws IOException {
+        final Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+        Files.walkFileTree(file, options, Integer.MAX_VALUE, new SimpleFileVisitor<>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                info.kgeorgiy.ja.shik.walk.Walk.processFile(file, outputFileWriter);
+                info.kgeorgiy.ja.shik.walk.Walk.processFile(file, attrs, outputFileWriter, hasher);
                 return FileVisitResult.CONTINUE;
             }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                if (exc instanceof FileSystemLoopException) {
+                    outputFileWriter.write(file.toString(), hasher.getAlgorithm().zero());
+                    return FileVisitResult.CONTINUE;
+                }
+                throw exc;
+            }
         });
     }
 
     public static void main(String[] args) {
-        info.kgeorgiy.ja.shik.walk.Walk.main(args, RecursiveWalk::processFileOrDirectory);
+        info.kgeorgiy.ja.shik.walk.Walk.main(args, true, (options, hasher) -> {
+            if (options.isDedup()) {
+                return new DuplicateFinder(hasher);
+            }
+            return options.getThreads() > 1
+                    ? new ParallelWalker(hasher, options.getThreads(), options.isFollowLinks())
+                    : (file, writer) -> processFileOrDirectory(Path.of(file), writer, hasher, options.isFollowLinks());
+        });
     }
 }
\ No newline at end of file
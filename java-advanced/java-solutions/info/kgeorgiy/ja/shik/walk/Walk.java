@@ -2,44 +2,21 @@ package info.kgeorgiy.ja.shik.walk;
 
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.BiFunction;
 
 public class Walk {
-    private static final int BUFFER_SIZE = 4096;
-    private static final long HIGH_BITS_MASK = 0xff00_0000_0000_0000L;
-    private static final int LOW_BITS_MASK = 0xff;
-    private static final int BITS = 64;
-
     private static void printError(String message, Exception e) {
         System.err.printf("%s: %s%n", message, e.getMessage());
     }
 
-    private static long PJWHash(Path file) {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        try (InputStream inputStream = Files.newInputStream(file)) {
-            long h = 0;
-            int size;
-            while ((size = inputStream.read(buffer)) >= 0) {
-                for (int i = 0; i < size; i++) {
-                    h = (h << 8) + (buffer[i] & LOW_BITS_MASK);
-                    final long high = h & HIGH_BITS_MASK;
-                    if (high != 0) {
-                        h ^= high >> (3 * BITS / 4);
-                        h &= ~high;
-                    }
-                }
-            }
-            return h;
-        } catch (IOException e) {
-            return 0;
-        }
-    }
-
-    private static void printHash(String file, BufferedWriter outputFileWriter, long hash) throws IOException {
-        outputFileWriter.write(String.format("%016x %s%n", hash, file));
+    static void processFile(Path file, HashWriter outputFileWriter, FileHasher hasher) throws IOException {
+        outputFileWriter.write(file.toString(), hasher.hash(file));
     }
 
-    static void processFile(Path file, BufferedWriter outputFileWriter) throws IOException {
-        printHash(file.toString(), outputFileWriter, PJWHash(file));
+    static void processFile(Path file, BasicFileAttributes attrs, HashWriter outputFileWriter, FileHasher hasher)
+            throws IOException {
+        outputFileWriter.write(file.toString(), hasher.hash(file, attrs));
     }
 
     private static void createParentDirectory(Path file) throws IOException {
@@ -49,14 +26,16 @@ public class Walk {
         }
     }
 
-    private static boolean checkArgs(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Wrong arguments format: should be 2 non-null arguments");
+    private static boolean checkArgs(WalkOptions options) {
+        if (options == null) {
             return false;
         }
         try {
-            Path.of(args[0]);
-            createParentDirectory(Path.of(args[1]));
+            Path.of(options.getInput());
+            if (options.getCache() != null) {
+                createParentDirectory(Path.of(options.getCache()));
+            }
+            createParentDirectory(Path.of(options.getOutput()));
         } catch (FileAlreadyExistsException e) {
             printError("File exists, but is not a directory", e);
             return false;
@@ -69,33 +48,81 @@ public class Walk {
         return true;
     }
 
-    static void main(String[] args, info.kgeorgiy.ja.shik.walk.BiWalkConsumer<Path, BufferedWriter> process) {
-        if (!checkArgs(args)) {
+    private static HashCache loadCache(WalkOptions options) {
+        if (options.getCache() == null) {
+            return null;
+        }
+        final Path file = Path.of(options.getCache());
+        try {
+            return HashCache.load(file, options.getAlgorithm());
+        } catch (IOException e) {
+            printError("Cannot read hash cache, it will be rebuilt", e);
+            return HashCache.empty(file, options.getAlgorithm());
+        }
+    }
+
+    private static void saveCache(HashCache cache) {
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                printError("Cannot write hash cache", e);
+            }
+        }
+    }
+
+    private static HashWriter openWriter(WalkOptions options) throws IOException {
+        final Path output = Path.of(options.getOutput());
+        return options.isBinary() ? HashWriter.binary(output, options.getAlgorithm()) : HashWriter.text(output);
+    }
+
+    static void main(String[] args, boolean recursive,
+                     BiFunction<WalkOptions, FileHasher, BiWalkConsumer<String, HashWriter>> processFactory) {
+        final WalkOptions options = WalkOptions.parse(args, recursive);
+        if (!checkArgs(options)) {
             return;
         }
-        try (BufferedReader inputFileReader = Files.newBufferedReader(Path.of(args[0]))) {
-            try (BufferedWriter outputFileWriter = Files.newBufferedWriter(Path.of(args[1]))) {
+        final HashCache cache = loadCache(options);
+        // Cache is rewritten with requested entries only, so it is saved only after the whole input was walked
+        boolean completed = false;
+        try (BiWalkConsumer<String, HashWriter> process =
+                     processFactory.apply(options, new FileHasher(options.getAlgorithm(), cache));
+             BufferedReader inputFileReader = Files.newBufferedReader(Path.of(options.getInput()))) {
+            try (HashWriter outputFileWriter = openWriter(options)) {
+                boolean read = false;
                 try {
                     String filename;
                     while ((filename = inputFileReader.readLine()) != null) {
                         try {
-                            process.accept(Path.of(filename), outputFileWriter);
+                            process.accept(filename, outputFileWriter);
                         } catch (InvalidPathException | IOException e) {
-                            printHash(filename, outputFileWriter, 0);
+                            if (options.isDedup()) {
+                                printError("Cannot walk " + filename, e);
+                            } else {
+                                outputFileWriter.write(filename, options.getAlgorithm().zero());
+                            }
                         }
                     }
+                    read = true;
                 } catch (IOException e) {
                     printError("Exception while reading input file", e);
                 }
+                process.complete(outputFileWriter);
+                completed = read;
             } catch (IOException e) {
                 printError("Exception with output file", e);
             }
         } catch (IOException e) {
             printError("Exception with input file", e);
         }
+        if (completed) {
+            saveCache(cache);
+        }
     }
 
     public static void main(String[] args) {
-        main(args, Walk::processFile);
+        main(args, false, (options, hasher) -> options.getThreads() > 1
+                ? new WalkPipeline(hasher, options.getThreads())
+                : (file, writer) -> processFile(Path.of(file), writer, hasher));
     }
 }
\ No newline at end of file
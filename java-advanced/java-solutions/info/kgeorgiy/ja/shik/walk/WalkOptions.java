@@ -0,0 +1,157 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Command line options of {@link Walk} and {@link RecursiveWalk}.
+ */
+class WalkOptions {
+    private static final String USAGE = "Usage: [-hash <algorithm>] [-cache <cache file>] [-threads <threads>] [-binary] [-dedup] [-follow] "
+            + "<input file> <output file>, algorithms: "
+            + Arrays.stream(HashAlgorithm.values()).map(HashAlgorithm::getName).collect(Collectors.joining(", "));
+
+    private String input;
+    private String output;
+    private HashAlgorithm algorithm;
+    private String cache;
+    private int threads = 1;
+    private boolean binary;
+    private boolean dedup;
+    private boolean followLinks;
+
+    private WalkOptions() {
+    }
+
+    String getInput() {
+        return input;
+    }
+
+    String getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns hash algorithm. Defaults to {@link HashAlgorithm#SHA256} in duplicate detection mode,
+     * where hash equality means equal content, and to {@link HashAlgorithm#PJW} otherwise.
+     *
+     * @return hash algorithm
+     */
+    HashAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns hash cache file name.
+     *
+     * @return cache file name or {@code null}, if cache is not used
+     */
+    String getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns number of threads for directory traversal and hashing.
+     *
+     * @return number of threads, {@code 1} means sequential processing
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns whether hashes should be written in binary format.
+     *
+     * @return {@code true} for binary output, {@code false} for text one
+     *
+     * @see HashWriter#binary(java.nio.file.Path, HashAlgorithm)
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Returns whether only groups of duplicate files should be written.
+     *
+     * @return {@code true} for duplicate detection mode
+     *
+     * @see DuplicateFinder
+     */
+    boolean isDedup() {
+        return dedup;
+    }
+
+    /**
+     * Returns whether {@link RecursiveWalk} should follow symbolic links to directories.
+     * Otherwise links are hashed as files, so links to directories get zero hash.
+     *
+     * @return {@code true} if symbolic links are followed
+     */
+    boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    private static WalkOptions printUsage(final String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        return null;
+    }
+
+    /**
+     * Parses command line arguments. Prints usage, if arguments have wrong format.
+     *
+     * @param args      command line arguments
+     * @param recursive whether arguments are parsed for {@link RecursiveWalk}, that supports {@code -dedup}
+     * @return parsed options or {@code null}, if arguments have wrong format
+     */
+    static WalkOptions parse(final String[] args, final boolean recursive) {
+        if (args == null || Arrays.stream(args).anyMatch(Objects::isNull)) {
+            System.err.println("Wrong arguments format: arguments should be non-null");
+            return null;
+        }
+        final WalkOptions options = new WalkOptions();
+        final List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-hash".equals(args[i]) && i + 1 < args.length) {
+                options.algorithm = HashAlgorithm.forName(args[++i]);
+                if (options.algorithm == null) {
+                    return printUsage("Unknown hash algorithm: " + args[i]);
+                }
+            } else if ("-cache".equals(args[i]) && i + 1 < args.length) {
+                options.cache = args[++i];
+            } else if ("-threads".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    options.threads = Integer.parseInt(args[++i]);
+                } catch (final NumberFormatException e) {
+                    options.threads = 0;
+                }
+                if (options.threads < 1) {
+                    return printUsage("Number of threads should be positive integer, found: " + args[i]);
+                }
+            } else if ("-binary".equals(args[i])) {
+                options.binary = true;
+            } else if ("-dedup".equals(args[i])) {
+                if (!recursive) {
+                    return printUsage("Duplicate detection is supported by RecursiveWalk only");
+                }
+                options.dedup = true;
+            } else if ("-follow".equals(args[i])) {
+                options.followLinks = true;
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            return printUsage("Wrong arguments format: should be 2 file names");
+        }
+        if (options.algorithm == null) {
+            options.algorithm = options.dedup ? HashAlgorithm.SHA256 : HashAlgorithm.PJW;
+        }
+        options.input = files.get(0);
+        options.output = files.get(1);
+        return options;
+    }
+}
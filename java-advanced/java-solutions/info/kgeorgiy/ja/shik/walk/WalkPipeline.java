@@ -0,0 +1,213 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+/**
+ * Three-stage pipeline for {@link Walk}: the calling thread reads file names,
+ * a pool of hashing threads computes hashes, a dedicated writer thread writes them in input order.
+ * Stages are connected by bounded queues, so memory usage doesn't depend on input size:
+ * the reading thread blocks, while either queue is full.
+ * Throughput and average queue occupancy are reported to {@code System.err} on completion.
+ */
+class WalkPipeline implements BiWalkConsumer<String, HashWriter> {
+    private static final int QUEUE_CAPACITY = 1 << 12;
+    private static final Job END = new Job(null, null);
+
+    private final FileHasher hasher;
+    private final ThreadPoolExecutor hashers;
+    private final Semaphore hashPermits;
+    private final BlockingQueue<Job> written;
+    private final long start;
+    private Thread writerThread;
+    private volatile IOException writeError;
+    private long files;
+    private long hashQueueOccupancy;
+    private long writeQueueOccupancy;
+
+    /**
+     * Constructs pipeline with given number of hashing threads.
+     *
+     * @param hasher  thread-safe hasher of files
+     * @param threads number of hashing threads
+     */
+    WalkPipeline(final FileHasher hasher, final int threads) {
+        this.hasher = hasher;
+        hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        hashPermits = new Semaphore(threads + QUEUE_CAPACITY);
+        written = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        start = System.nanoTime();
+    }
+
+    /**
+     * Schedules hashing of {@code file}. Blocks, while hashing or writer stage queue is full.
+     * If interrupted, waits for the writer thread to write all previously scheduled hashes and stops it,
+     * so the caller may write to {@code writer} afterwards, but no more files are accepted.
+     *
+     * @param file   name of file to hash
+     * @param writer output for hashes, that should be the same for all calls
+     * @throws IOException if writer stage failed or calling thread was interrupted
+     */
+    @Override
+    public void accept(final String file, final HashWriter writer) throws IOException {
+        checkWriteError();
+        if (writerThread == null) {
+            writerThread = new Thread(() -> write(writer));
+            writerThread.start();
+        }
+        hashQueueOccupancy += hashers.getQueue().size();
+        writeQueueOccupancy += written.size();
+        try {
+            hashPermits.acquire();
+        } catch (final InterruptedException e) {
+            throw interrupted("Interrupted while scheduling " + file);
+        }
+        files++;
+        final CompletableFuture<byte[]> hash = CompletableFuture.supplyAsync(() -> hash(file), hashers);
+        hash.whenComplete((result, e) -> hashPermits.release());
+        try {
+            written.put(new Job(file, hash));
+        } catch (final InterruptedException e) {
+            throw interrupted("Interrupted while scheduling " + file);
+        }
+    }
+
+    /**
+     * Waits, until all scheduled hashes are written, and reports pipeline statistics.
+     * Hashes are written even if calling thread is interrupted, so {@code writer} is not used after return.
+     *
+     * @param writer output for hashes
+     * @throws IOException if writer stage failed
+     */
+    @Override
+    public void complete(final HashWriter writer) throws IOException {
+        if (writerThread == null) {
+            return;
+        }
+        stopWriter();
+        checkWriteError();
+        report();
+    }
+
+    /**
+     * Stops hashing and writer threads.
+     */
+    @Override
+    public void close() {
+        if (writerThread != null) {
+            writerThread.interrupt();
+        }
+        hashers.shutdownNow();
+        try {
+            if (!hashers.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Hashing threads did not terminate");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] hash(final String file) {
+        try {
+            return hasher.hash(Path.of(file));
+        } catch (final InvalidPathException e) {
+            return hasher.getAlgorithm().zero();
+        }
+    }
+
+    /**
+     * Stops the writer and makes all following {@link #accept(String, HashWriter)} calls fail.
+     */
+    private InterruptedIOException interrupted(final String message) {
+        final InterruptedIOException e = new InterruptedIOException(message);
+        stopWriter();
+        if (writeError == null) {
+            writeError = e;
+        }
+        Thread.currentThread().interrupt();
+        return e;
+    }
+
+    /**
+     * Waits, until the writer thread writes all scheduled hashes and terminates. Ignores interrupts,
+     * as the writer cannot be abandoned, while it may use output, and restores interrupted status on return.
+     */
+    private void stopWriter() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                written.put(END);
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes hashes in input order. Failed hashing is reported with zero hash, as unreadable file,
+     * only failure of output itself stops writing.
+     */
+    private void write(final HashWriter writer) {
+        try {
+            for (Job job = written.take(); job != END; job = written.take()) {
+                if (writeError == null) {
+                    try {
+                        writer.write(job.file, getHash(job));
+                    } catch (final IOException e) {
+                        writeError = e;
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] getHash(final Job job) {
+        try {
+            return job.hash.join();
+        } catch (final CompletionException | CancellationException e) {
+            System.err.printf("Cannot hash %s: %s%n", job.file, e);
+            return hasher.getAlgorithm().zero();
+        }
+    }
+
+    private void checkWriteError() throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void report() {
+        final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        System.err.printf("Processed %d files in %.3f s (%.1f files/s)%n", files, seconds, files / seconds);
+        System.err.printf("Average queue occupancy: hashing %.1f, writing %.1f of %d%n",
+                (double) hashQueueOccupancy / Math.max(files, 1),
+                (double) writeQueueOccupancy / Math.max(files, 1),
+                QUEUE_CAPACITY);
+    }
+
+    private static class Job {
+        private final String file;
+        private final CompletableFuture<byte[]> hash;
+
+        private Job(final String file, final CompletableFuture<byte[]> hash) {
+            this.file = file;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package info.kgeorgiy.ja.shik.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">xxHash64</a>
+ * hash function with zero seed. Input is consumed by 32-byte stripes of four 8-byte lanes.
+ */
+class XXHash64Hasher implements Hasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+    private long length;
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private static long round(final long acc, final long lane) {
+        return Long.rotateLeft(acc + lane * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(final long acc, final long v) {
+        return (acc ^ round(0, v)) * PRIME1 + PRIME4;
+    }
+
+    private void stripe(final ByteBuffer buffer, final int offset) {
+        v1 = round(v1, buffer.getLong(offset));
+        v2 = round(v2, buffer.getLong(offset + 8));
+        v3 = round(v3, buffer.getLong(offset + 16));
+        v4 = round(v4, buffer.getLong(offset + 24));
+    }
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        final ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        length += input.remaining();
+        if (pending.position() > 0) {
+            while (pending.hasRemaining() && input.hasRemaining()) {
+                pending.put(input.get());
+            }
+            if (pending.hasRemaining()) {
+                return;
+            }
+            stripe(pending, 0);
+            pending.clear();
+        }
+        int offset = input.position();
+        for (; input.limit() - offset >= STRIPE; offset += STRIPE) {
+            stripe(input, offset);
+        }
+        pending.put(input.position(offset));
+    }
+
+    @Override
+    public byte[] digest() {
+        long h;
+        if (length >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = PRIME5;
+        }
+        h += length;
+
+        final int size = pending.position();
+        int offset = 0;
+        for (; offset + Long.BYTES <= size; offset += Long.BYTES) {
+            h = Long.rotateLeft(h ^ round(0, pending.getLong(offset)), 27) * PRIME1 + PRIME4;
+        }
+        if (offset + Integer.BYTES <= size) {
+            h = Long.rotateLeft(h ^ (Integer.toUnsignedLong(pending.getInt(offset)) * PRIME1), 23) * PRIME2 + PRIME3;
+            offset += Integer.BYTES;
+        }
+        for (; offset < size; offset++) {
+            h = Long.rotateLeft(h ^ (Byte.toUnsignedLong(pending.get(offset)) * PRIME5), 11) * PRIME1;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return ByteBuffer.allocate(Long.BYTES).putLong(h).array();
+    }
+}
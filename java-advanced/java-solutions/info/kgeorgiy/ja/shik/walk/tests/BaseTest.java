@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BaseTest {
+    protected Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("walk");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (final Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    protected Path file(final String name, final byte[] content) throws IOException {
+        final Path file = dir.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content);
+    }
+
+    protected Path file(final String name, final String content) throws IOException {
+        return file(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static byte[] random(final long seed, final int size) {
+        final byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Runs {@code main} for {@code roots} with given options and returns its output file.
+     */
+    protected Path walk(final Consumer<String[]> main, final List<Path> roots, final String... options)
+            throws IOException {
+        final Path input = dir.resolve("input.txt");
+        final Path output = dir.resolve("output.txt");
+        Files.write(input, roots.stream().map(Path::toString).collect(Collectors.toList()));
+        Files.deleteIfExists(output);
+        final List<String> args = new ArrayList<>(List.of(options));
+        args.add(input.toString());
+        args.add(output.toString());
+        main.accept(args.toArray(new String[0]));
+        return output;
+    }
+
+    /**
+     * Runs {@code main} for {@code roots} with given options and returns lines of its output.
+     */
+    protected List<String> run(final Consumer<String[]> main, final List<Path> roots, final String... options)
+            throws IOException {
+        return Files.readAllLines(walk(main, roots, options));
+    }
+
+    /**
+     * Runs {@code main} and returns hashes of files by their names.
+     */
+    protected Map<String, String> hashes(final Consumer<String[]> main, final List<Path> roots,
+                                         final String... options) throws IOException {
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        for (final String line : run(main, roots, options)) {
+            final int space = line.indexOf(' ');
+            hashes.put(line.substring(space + 1), line.substring(0, space));
+        }
+        return hashes;
+    }
+
+    protected static String hash(final Map<String, String> hashes, final Path file) {
+        return hashes.get(file.toString());
+    }
+}
@@ -0,0 +1,123 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.RecursiveWalk;
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class DuplicateFinderTest extends BaseTest {
+    private static final int PARTIAL_SIZE = 64 * 1024;
+
+    /**
+     * Runs duplicate detection and returns groups of duplicates, as consecutive records with equal hashes.
+     */
+    private List<List<String>> duplicates(final List<Path> roots, final String... options) throws IOException {
+        final List<String> args = new ArrayList<>(List.of("-dedup"));
+        args.addAll(List.of(options));
+        final List<List<String>> groups = new ArrayList<>();
+        String previous = null;
+        for (final String line : run(RecursiveWalk::main, roots, args.toArray(new String[0]))) {
+            final int space = line.indexOf(' ');
+            final String hash = line.substring(0, space);
+            if (!hash.equals(previous)) {
+                groups.add(new ArrayList<>());
+                previous = hash;
+            }
+            groups.get(groups.size() - 1).add(line.substring(space + 1));
+        }
+        return groups;
+    }
+
+    private static List<String> group(final Path... files) {
+        return List.of(files).stream().map(Path::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_01_groups() throws IOException {
+        final Path a = file("root/a.txt", "same");
+        final Path b = file("root/b.txt", "same");
+        file("root/c.txt", "other");
+        final Path d = file("root/x/d.txt", "content");
+        final Path e = file("root/x/y/e.txt", "content");
+        final Path f = file("root/z/f.txt", "content");
+        file("root/z/g.txt", "unique");
+        final Path empty1 = file("root/empty1", "");
+        final Path empty2 = file("root/x/empty2", "");
+        Assert.assertEquals(List.of(group(a, b), group(empty1, empty2), group(d, e, f)),
+                duplicates(List.of(dir.resolve("root"))));
+    }
+
+    /**
+     * Returns {@code middle} surrounded by equal random ends, longer than {@value #PARTIAL_SIZE} bytes.
+     */
+    private static byte[] surround(final String middle) {
+        final byte[] ends = random(2, 2 * PARTIAL_SIZE + 2);
+        final byte[] content = new byte[ends.length + middle.length()];
+        System.arraycopy(ends, 0, content, 0, ends.length / 2);
+        System.arraycopy(middle.getBytes(StandardCharsets.US_ASCII), 0, content, ends.length / 2, middle.length());
+        System.arraycopy(ends, ends.length / 2, content, ends.length / 2 + middle.length(), ends.length / 2);
+        return content;
+    }
+
+    private void checkCollision(final Path first, final Path second, final Path copy) throws IOException {
+        final List<String> hashes = run(Walk::main, List.of(first, second), "-hash", "pjw");
+        Assert.assertEquals("PJW collision", hashes.get(0).split(" ")[0], hashes.get(1).split(" ")[0]);
+        for (final String algorithm : new String[]{"pjw", "crc32c", "xxhash64", "sha256"}) {
+            Assert.assertEquals(algorithm, List.of(group(copy, first)),
+                    duplicates(List.of(first.getParent()), "-hash", algorithm));
+        }
+    }
+
+    @Test
+    public void test_02_hashCollision() throws IOException {
+        checkCollision(file("small/first.txt", "AbcdefAg"), file("small/second.txt", "BbcdefBg"),
+                file("small/copy.txt", "AbcdefAg"));
+        // Ends of large files are equal, so they are not told apart by partial hash
+        checkCollision(file("large/first.bin", surround("AbcdefAg")), file("large/second.bin", surround("BbcdefBg")),
+                file("large/copy.bin", surround("AbcdefAg")));
+    }
+
+    @Test
+    public void test_03_largeFiles() throws IOException {
+        final byte[] content = random(3, 3 * PARTIAL_SIZE + 17);
+        final Path original = file("root/original.bin", content);
+        final Path copy = file("root/copy.bin", content);
+        content[content.length / 2]++;
+        file("root/middle.bin", content);
+        for (final String algorithm : new String[]{"pjw", "xxhash64", "sha256"}) {
+            Assert.assertEquals(algorithm, List.of(group(copy, original)),
+                    duplicates(List.of(dir.resolve("root")), "-hash", algorithm));
+        }
+    }
+
+    @Test
+    public void test_04_overlappingRoots() throws IOException {
+        final Path a = file("root/a.txt", "same");
+        final Path b = file("root/sub/b.txt", "same");
+        Assert.assertEquals(List.of(group(a, b)),
+                duplicates(List.of(dir.resolve("root"), b, dir.resolve("root/sub"))));
+    }
+
+    @Test
+    public void test_05_missingRoot() throws IOException {
+        final Path a = file("root/a.txt", "same");
+        final Path b = file("root/b.txt", "same");
+        Assert.assertEquals(List.of(group(a, b)),
+                duplicates(List.of(dir.resolve("missing"), dir.resolve("root"))));
+    }
+
+    @Test
+    public void test_06_notRecursive() throws IOException {
+        // Walk doesn't find duplicates, so it rejects -dedup instead of writing all hashes
+        final Path a = file("root/a.txt", "same");
+        Assert.assertFalse(Files.exists(walk(Walk::main, List.of(a), "-dedup")));
+    }
+}
@@ -0,0 +1,62 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class HashAlgorithmTest extends BaseTest {
+    private void check(final String algorithm, final String content, final String expected) throws IOException {
+        final Path file = file("file.txt", content);
+        Assert.assertEquals(algorithm + " of '" + content + "'", expected,
+                hash(hashes(Walk::main, List.of(file), "-hash", algorithm), file));
+    }
+
+    @Test
+    public void test_01_xxhash64() throws IOException {
+        check("xxhash64", "", "ef46db3751d8e999");
+        check("xxhash64", "a", "d24ec4f1a98c6e5b");
+        check("xxhash64", "abc", "44bc2cf5ad770999");
+        check("xxhash64", "Nobody inspects the spammish repetition", "fbcea83c8a378bf1");
+    }
+
+    @Test
+    public void test_02_crc32c() throws IOException {
+        check("crc32c", "", "00000000");
+        check("crc32c", "123456789", "e3069283");
+    }
+
+    @Test
+    public void test_03_sha256() throws IOException {
+        check("sha256", "", "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        check("sha256", "abc", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    public void test_04_pjwByDefault() throws IOException {
+        check("pjw", "", "0000000000000000");
+        check("pjw", "abc", "0000000000616263");
+        final Path file = file("file.txt", "abc");
+        Assert.assertEquals("0000000000616263", hash(hashes(Walk::main, List.of(file)), file));
+    }
+
+    @Test
+    public void test_05_missingFile() throws IOException {
+        final Path missing = dir.resolve("missing.txt");
+        for (final String algorithm : new String[]{"pjw", "crc32c", "xxhash64", "sha256"}) {
+            final String hash = hash(hashes(Walk::main, List.of(missing), "-hash", algorithm), missing);
+            Assert.assertTrue(algorithm, hash.matches("0+"));
+        }
+    }
+
+    @Test
+    public void test_06_unknownAlgorithm() {
+        final Path output = dir.resolve("output.txt");
+        Walk.main(new String[]{"-hash", "md4", dir.resolve("input.txt").toString(), output.toString()});
+        Assert.assertFalse(Files.exists(output));
+    }
+}
@@ -0,0 +1,126 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.RecursiveWalk;
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class HashCacheTest extends BaseTest {
+    private Path cache() {
+        return dir.resolve("cache/walk.cache");
+    }
+
+    private Map<String, String> cached(final List<Path> roots, final String... options) throws IOException {
+        final String[] args = new String[options.length + 2];
+        args[0] = "-cache";
+        args[1] = cache().toString();
+        System.arraycopy(options, 0, args, 2, options.length);
+        return hashes(Walk::main, roots, args);
+    }
+
+    /**
+     * Rewrites {@code file} in place with content of the same size, keeping its modification time.
+     */
+    private static void replaceSilently(final Path file, final String content) throws IOException {
+        final FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, modified);
+    }
+
+    @Test
+    public void test_01_reuseUnchanged() throws IOException {
+        final Path a = file("a.txt", "abc");
+        final Path b = file("b.txt", "def");
+        final Map<String, String> expected = hashes(Walk::main, List.of(a, b));
+        Assert.assertEquals(expected, cached(List.of(a, b)));
+        Assert.assertTrue(Files.exists(cache()));
+
+        // Unchanged attributes mean unchanged content, so stale hash proves, that cache was used
+        replaceSilently(a, "xyz");
+        Assert.assertEquals(expected, cached(List.of(a, b)));
+    }
+
+    @Test
+    public void test_02_invalidateModified() throws IOException {
+        final Path a = file("a.txt", "abc");
+        final Path b = file("b.txt", "def");
+        cached(List.of(a, b));
+
+        Files.writeString(a, "xyz");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 5000));
+        Files.writeString(b, "longer");
+        Assert.assertEquals(hashes(Walk::main, List.of(a, b)), cached(List.of(a, b)));
+    }
+
+    @Test
+    public void test_03_otherAlgorithm() throws IOException {
+        final Path a = file("a.txt", "abc");
+        cached(List.of(a));
+        Assert.assertEquals(hashes(Walk::main, List.of(a), "-hash", "sha256"), cached(List.of(a), "-hash", "sha256"));
+        Assert.assertEquals(hashes(Walk::main, List.of(a)), cached(List.of(a)));
+    }
+
+    @Test
+    public void test_04_corruptedCache() throws IOException {
+        final Path a = file("a.txt", "abc");
+        cached(List.of(a));
+        final byte[] content = Files.readAllBytes(cache());
+        Files.write(cache(), Arrays.copyOf(content, content.length / 2));
+        Assert.assertEquals(hashes(Walk::main, List.of(a)), cached(List.of(a)));
+
+        // Cache is rebuilt
+        replaceSilently(a, "xyz");
+        Assert.assertEquals("0000000000616263", hash(cached(List.of(a)), a));
+    }
+
+    @Test
+    public void test_05_missingFiles() throws IOException {
+        final Path a = file("a.txt", "abc");
+        final Path missing = dir.resolve("missing.txt");
+        cached(List.of(a, missing));
+        Assert.assertEquals("0000000000000000", hash(cached(List.of(a, missing)), missing));
+
+        file("missing.txt", "abc");
+        Assert.assertEquals("0000000000616263", hash(cached(List.of(a, missing)), missing));
+    }
+
+    @Test
+    public void test_06_recursiveWalk() throws IOException {
+        final Path root = dir.resolve("root");
+        for (int i = 0; i < 50; i++) {
+            file("root/" + i % 5 + "/" + i + ".txt", "file " + i);
+        }
+        final Map<String, String> expected = hashes(RecursiveWalk::main, List.of(root));
+        final String[] options = {"-cache", cache().toString()};
+        Assert.assertEquals(expected, hashes(RecursiveWalk::main, List.of(root), options));
+        replaceSilently(root.resolve("3/13.txt"), "file 99");
+        Assert.assertEquals(expected, hashes(RecursiveWalk::main, List.of(root), options));
+    }
+
+    @Test
+    public void test_07_failedRun() throws IOException {
+        final Path a = file("a.txt", "abc");
+        final Map<String, String> expected = cached(List.of(a));
+        final byte[] content = Files.readAllBytes(cache());
+
+        // Neither missing input nor unwritable output drop cached hashes
+        Walk.main(new String[]{"-cache", cache().toString(), dir.resolve("missing.txt").toString(),
+                dir.resolve("output.txt").toString()});
+        Assert.assertArrayEquals(content, Files.readAllBytes(cache()));
+        Files.createDirectories(dir.resolve("directory"));
+        Walk.main(new String[]{"-cache", cache().toString(), dir.resolve("input.txt").toString(),
+                dir.resolve("directory").toString()});
+        Assert.assertArrayEquals(content, Files.readAllBytes(cache()));
+
+        replaceSilently(a, "xyz");
+        Assert.assertEquals(expected, cached(List.of(a)));
+    }
+}
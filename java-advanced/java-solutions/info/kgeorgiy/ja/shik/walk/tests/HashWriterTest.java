@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HashWriterTest extends BaseTest {
+    private static final int MAGIC = 0x57485348;
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs {@link Walk} with binary output and returns hashes of files by their names.
+     */
+    private Map<String, String> binary(final List<Path> roots, final String algorithm, final int size)
+            throws IOException {
+        final Path output = walk(Walk::main, roots, "-binary", "-hash", algorithm);
+        final Map<String, String> hashes = new LinkedHashMap<>();
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(output)))) {
+            Assert.assertEquals(MAGIC, in.readInt());
+            Assert.assertEquals(algorithm, new String(in.readNBytes(in.readUnsignedShort()), StandardCharsets.UTF_8));
+            Assert.assertEquals(size, in.readInt());
+            while (true) {
+                final byte[] hash = new byte[size];
+                try {
+                    in.readFully(hash);
+                } catch (final EOFException e) {
+                    break;
+                }
+                final String file = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                hashes.put(file, hex(hash));
+            }
+        }
+        return hashes;
+    }
+
+    @Test
+    public void test_01_binaryEqualsText() throws IOException {
+        final List<Path> files = List.of(
+                file("a.txt", "abc"),
+                file("\u043f\u0440\u0438\u043c\u0435\u0440/\u0444\u0430\u0439\u043b.txt",
+                        "\u0441\u043e\u0434\u0435\u0440\u0436\u0438\u043c\u043e\u0435"),
+                file("\u4f8b/\u6587\u4ef6.txt", random(1, 10000)),
+                dir.resolve("missing.txt"));
+        for (final String algorithm : new String[]{"pjw", "crc32c", "sha256"}) {
+            final Map<String, String> expected = hashes(Walk::main, files, "-hash", algorithm);
+            final int size = expected.values().iterator().next().length() / 2;
+            Assert.assertEquals(List.copyOf(expected.entrySet()),
+                    List.copyOf(binary(files, algorithm, size).entrySet()));
+        }
+    }
+
+    @Test
+    public void test_02_manyRecords() throws IOException {
+        // Output is larger, than buffer of writer
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            files.add(dir.resolve("missing/" + "x".repeat(i % 100) + i));
+        }
+        files.add(file("a.txt", "abc"));
+        final Map<String, String> text = hashes(Walk::main, files, "-hash", "sha256");
+        Assert.assertEquals(files.size(), text.size());
+        Assert.assertTrue(Files.size(dir.resolve("output.txt")) > 1 << 20);
+        Assert.assertEquals(List.copyOf(text.entrySet()), List.copyOf(binary(files, "sha256", 32).entrySet()));
+    }
+}
@@ -0,0 +1,64 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+public class LargeFileTest extends BaseTest {
+    private static String hex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String sha256(final byte[] content) throws NoSuchAlgorithmException {
+        return hex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static String pjw(final byte[] content) {
+        long h = 0;
+        for (final byte b : content) {
+            h = (h << 8) + (b & 0xff);
+            final long high = h & 0xff00_0000_0000_0000L;
+            if (high != 0) {
+                h ^= high >> 48;
+                h &= ~high;
+            }
+        }
+        return String.format("%016x", h);
+    }
+
+    private void check(final int size) throws IOException, NoSuchAlgorithmException {
+        final byte[] content = random(size, size);
+        final Path file = file("large.bin", content);
+        for (final String threads : new String[]{"1", "4"}) {
+            final Map<String, String> sha256 = hashes(Walk::main, List.of(file), "-hash", "sha256", "-threads", threads);
+            Assert.assertEquals(size + " bytes", sha256(content), hash(sha256, file));
+            final Map<String, String> pjw = hashes(Walk::main, List.of(file), "-threads", threads);
+            Assert.assertEquals(size + " bytes", pjw(content), hash(pjw, file));
+        }
+    }
+
+    @Test
+    public void test_01_readFiles() throws IOException, NoSuchAlgorithmException {
+        // Read through buffer of 1 MiB
+        check((1 << 20) - 1);
+        check(1 << 20);
+        check((3 << 20) + 12345);
+    }
+
+    @Test
+    public void test_02_mappedFiles() throws IOException, NoSuchAlgorithmException {
+        // Mapped from 64 MiB by windows of 16 MiB
+        check((64 << 20) + 12345);
+    }
+}
@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.RecursiveWalk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelWalkTest extends BaseTest {
+    /**
+     * Creates tree with {@code width} subdirectories and {@code files} files in each directory up to {@code depth}.
+     */
+    private Path tree(final String name, final int depth, final int width, final int files) throws IOException {
+        final Path root = dir.resolve(name);
+        tree(name, depth, width, files, 0);
+        return root;
+    }
+
+    private void tree(final String name, final int depth, final int width, final int files, final int seed)
+            throws IOException {
+        Files.createDirectories(dir.resolve(name));
+        for (int i = 0; i < files; i++) {
+            file(name + "/file" + i, random(seed * 1000L + i, (seed + i) % 300));
+        }
+        if (depth > 0) {
+            for (int i = 0; i < width; i++) {
+                tree(name + "/dir" + i, depth - 1, width, files, seed * width + i + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns sequential output for {@code roots} in the order of parallel walk:
+     * depth-first with entries of each directory sorted.
+     */
+    private List<String> sorted(final List<Path> roots, final String... options) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Path root : roots) {
+            run(RecursiveWalk::main, List.of(root), options).stream()
+                    .sorted(Comparator.comparing(line -> Path.of(line.substring(line.indexOf(' ') + 1))))
+                    .forEach(lines::add);
+        }
+        return lines;
+    }
+
+    private void check(final List<Path> roots, final String... options) throws IOException {
+        final List<String> expected = sorted(roots, options);
+        for (final String threads : new String[]{"2", "8"}) {
+            final List<String> args = new ArrayList<>(List.of(options));
+            args.add("-threads");
+            args.add(threads);
+            Assert.assertEquals(expected, run(RecursiveWalk::main, roots, args.toArray(new String[0])));
+        }
+    }
+
+    @Test
+    public void test_01_wideDirectories() throws IOException {
+        // Files of a directory are hashed in batches
+        check(List.of(tree("wide", 1, 3, 200)));
+    }
+
+    @Test
+    public void test_02_deepTree() throws IOException {
+        // More directories, than tasks started at once
+        check(List.of(tree("deep", 5, 4, 2)));
+    }
+
+    @Test
+    public void test_03_severalRoots() throws IOException {
+        final Path a = tree("a", 2, 3, 5);
+        final Path b = tree("b", 1, 2, 70);
+        final Path file = file("single.txt", "abc");
+        check(List.of(a, dir.resolve("missing"), b, file, a.resolve("dir1")));
+    }
+
+    @Test
+    public void test_04_emptyDirectories() throws IOException {
+        final Path empty = tree("empty", 3, 3, 0);
+        Assert.assertEquals(Map.of(), hashes(RecursiveWalk::main, List.of(empty), "-threads", "4"));
+    }
+
+    @Test
+    public void test_05_symbolicLinks() throws IOException {
+        final Path root = tree("links", 2, 2, 3);
+        Files.createSymbolicLink(root.resolve("dir0/up"), root);
+        Files.createSymbolicLink(root.resolve("dir1/self"), root.resolve("dir1"));
+        Files.createSymbolicLink(root.resolve("dir1/other"), root.resolve("dir0/dir1"));
+        Files.createSymbolicLink(root.resolve("file"), root.resolve("dir0/file1"));
+        Files.createSymbolicLink(root.resolve("broken"), root.resolve("missing"));
+
+        // Links are hashed as files
+        check(List.of(root));
+        final Map<String, String> hashes = hashes(RecursiveWalk::main, List.of(root), "-threads", "4");
+        Assert.assertEquals("0000000000000000", hash(hashes, root.resolve("dir0/up")));
+        Assert.assertEquals(hash(hashes, root.resolve("dir0/file1")), hash(hashes, root.resolve("file")));
+        Assert.assertNull(hash(hashes, root.resolve("dir1/other/file0")));
+
+        // Cycles are reported with zero hash
+        check(List.of(root), "-follow");
+        final Map<String, String> followed = hashes(RecursiveWalk::main, List.of(root), "-threads", "4", "-follow");
+        Assert.assertEquals("0000000000000000", hash(followed, root.resolve("dir0/up")));
+        Assert.assertEquals("0000000000000000", hash(followed, root.resolve("dir1/self")));
+        Assert.assertEquals(hash(followed, root.resolve("dir0/dir1/file0")),
+                hash(followed, root.resolve("dir1/other/file0")));
+        Assert.assertEquals("0000000000000000", hash(followed, root.resolve("broken")));
+    }
+}
@@ -0,0 +1,82 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import info.kgeorgiy.ja.shik.walk.Walk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PipelineTest extends BaseTest {
+    private void check(final List<String> names, final String... options) throws IOException {
+        final Path input = dir.resolve("input.txt");
+        Files.write(input, names);
+        final List<String> expected = walk(input, options);
+        Assert.assertEquals(names.size(), expected.size());
+        for (final String threads : new String[]{"2", "4", "16"}) {
+            final List<String> args = new ArrayList<>(List.of(options));
+            args.add("-threads");
+            args.add(threads);
+            Assert.assertEquals(expected, walk(input, args.toArray(new String[0])));
+        }
+    }
+
+    private List<String> walk(final Path input, final String... options) throws IOException {
+        final Path output = dir.resolve("output.txt");
+        Files.deleteIfExists(output);
+        final List<String> args = new ArrayList<>(List.of(options));
+        args.add(input.toString());
+        args.add(output.toString());
+        Walk.main(args.toArray(new String[0]));
+        return Files.readAllLines(output);
+    }
+
+    @Test
+    public void test_01_preserveOrder() throws IOException {
+        // Files of different sizes are hashed in different time, but written in input order
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            names.add(file("file" + i, random(i, i % 10 == 0 ? 1 << 20 : i)).toString());
+        }
+        check(names);
+        check(names, "-hash", "sha256");
+    }
+
+    @Test
+    public void test_02_invalidFiles() throws IOException {
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            switch (i % 4) {
+                case 0:
+                    names.add(file("file" + i, "content " + i).toString());
+                    break;
+                case 1:
+                    names.add(dir.resolve("missing" + i).toString());
+                    break;
+                case 2:
+                    names.add(dir.toString());
+                    break;
+                default:
+                    names.add("invalid\0" + i);
+            }
+        }
+        check(names);
+    }
+
+    @Test
+    public void test_03_manyFiles() throws IOException {
+        // More files, than could be queued at once
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(file("file" + i, "content " + i));
+        }
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            names.add(files.get(i % files.size()).toString());
+        }
+        check(names, "-hash", "xxhash64");
+    }
+}
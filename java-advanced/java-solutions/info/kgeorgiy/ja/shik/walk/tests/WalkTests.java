@@ -0,0 +1,12 @@
+package info.kgeorgiy.ja.shik.walk.tests;
+
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+
+public class WalkTests {
+    public static void main(final String[] args) {
+        final JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.err));
+        System.exit(junit.run(HashAlgorithmTest.class, LargeFileTest.class, HashCacheTest.class, ParallelWalkTest.class, HashWriterTest.class, DuplicateFinderTest.class, PipelineTest.class).wasSuccessful() ? 0 : 1);
+    }
+}